@@ -0,0 +1,94 @@
+package com.garbigo.auth.config;
+
+import com.garbigo.auth.model.LiveLocation;
+import com.garbigo.auth.model.LiveLocationRollup;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Creates live_locations as a time-series collection with TTL retention before anything writes to it,
+// and declares the indexes for raw history and hourly rollups.
+@Component
+public class LiveLocationCollectionInitializer {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${live-location.history.raw-retention-days:7}")
+    private long rawRetentionDays;
+
+    @Value("${live-location.history.rollup-retention-days:365}")
+    private long rollupRetentionDays;
+
+    public LiveLocationCollectionInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    void initialize() {
+        String collection = mongoTemplate.getCollectionName(LiveLocation.class);
+        long retentionSeconds = TimeUnit.DAYS.toSeconds(rawRetentionDays);
+        Document existing = mongoTemplate.getDb().listCollections().filter(new Document("name", collection)).first();
+
+        if (existing == null) {
+            mongoTemplate.getDb().createCollection(collection, new CreateCollectionOptions()
+                    .timeSeriesOptions(new TimeSeriesOptions("timestamp")
+                            .metaField("userId")
+                            .granularity(TimeSeriesGranularity.SECONDS))
+                    .expireAfter(retentionSeconds, TimeUnit.SECONDS));
+        } else if ("timeseries".equals(existing.getString("type"))) {
+            // Keep retention in line with configuration
+            mongoTemplate.getDb().runCommand(new Document("collMod", collection)
+                    .append("expireAfterSeconds", retentionSeconds));
+        } else {
+            // A regular collection cannot be converted in place; bound it with a TTL index instead
+            System.err.println("live_locations is not a time-series collection; applying TTL index only. "
+                    + "Migrate it to a time-series collection to reduce storage.");
+            ensureTtlIndex(collection, "timestamp", "timestamp_ttl", Duration.ofDays(rawRetentionDays));
+        }
+
+        IndexOperations indexOps = mongoTemplate.indexOps(LiveLocation.class);
+        IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(LiveLocation.class)
+                .forEach(index -> {
+                    try {
+                        indexOps.ensureIndex(index);
+                    } catch (Exception e) {
+                        // 2dsphere on time-series needs MongoDB 6.0+
+                        System.err.println("Could not create index on live_locations: " + e.getMessage());
+                    }
+                });
+
+        String rollups = mongoTemplate.getCollectionName(LiveLocationRollup.class);
+        mongoTemplate.indexOps(rollups).ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("hour", Sort.Direction.ASC)
+                .named("userId_hour"));
+        ensureTtlIndex(rollups, "hour", "hour_ttl", Duration.ofDays(rollupRetentionDays));
+    }
+
+    private void ensureTtlIndex(String collection, String field, String name, Duration expireAfter) {
+        try {
+            mongoTemplate.indexOps(collection).ensureIndex(new Index()
+                    .on(field, Sort.Direction.ASC)
+                    .named(name)
+                    .expire(expireAfter));
+        } catch (Exception e) {
+            // Index exists with a different expiry; update it in place
+            mongoTemplate.getDb().runCommand(new Document("collMod", collection)
+                    .append("index", new Document("name", name)
+                            .append("expireAfterSeconds", expireAfter.getSeconds())));
+        }
+    }
+}
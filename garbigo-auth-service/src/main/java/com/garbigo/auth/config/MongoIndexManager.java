@@ -0,0 +1,202 @@
+package com.garbigo.auth.config;
+
+import com.garbigo.auth.dto.IndexReport;
+import com.garbigo.auth.dto.IndexReport.IndexStatus;
+import com.garbigo.auth.dto.IndexReport.QueryPlan;
+import com.garbigo.auth.model.Follower;
+import com.garbigo.auth.model.Like;
+import com.garbigo.auth.model.LiveLocation;
+import com.garbigo.auth.model.MailMessage;
+import com.garbigo.auth.model.OutboxEvent;
+import com.garbigo.auth.model.Review;
+import com.garbigo.auth.model.Token;
+import com.garbigo.auth.model.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver.IndexDefinitionHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Applies the indexes declared on the auth documents (Spring Data does not auto-create them),
+// verifies what the server actually has, and explains the hot queries to catch any that would
+// fall back to a collection scan or an in-memory sort. Runs in the background after startup; MongoDB 4.2+ index builds
+// only lock the collection briefly at the start and end, so traffic is served meanwhile.
+@Component
+public class MongoIndexManager {
+
+    private static final List<Class<?>> MANAGED_DOCUMENTS = List.of(
+            User.class, Token.class, Follower.class, Like.class, Review.class, LiveLocation.class,
+            MailMessage.class, OutboxEvent.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile IndexReport lastReport;
+
+    public MongoIndexManager(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        Gauge.builder("auth.mongo.indexes.unhealthy", this, m -> m.lastReport == null ? 0
+                        : m.lastReport.getIndexes().stream()
+                        .filter(i -> "MISMATCH".equals(i.getStatus()) || "FAILED".equals(i.getStatus())).count())
+                .register(meterRegistry);
+        Gauge.builder("auth.mongo.queries.collscan", this, m -> m.lastReport == null ? 0
+                        : m.lastReport.getQueries().stream().filter(QueryPlan::isCollectionScan).count())
+                .register(meterRegistry);
+        Gauge.builder("auth.mongo.queries.in-memory-sort", this, m -> m.lastReport == null ? 0
+                        : m.lastReport.getQueries().stream().filter(QueryPlan::isInMemorySort).count())
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void manageOnStartup() {
+        Thread worker = new Thread(() -> {
+            try {
+                IndexReport report = refresh();
+                report.getIndexes().stream()
+                        .filter(i -> !"PRESENT".equals(i.getStatus()))
+                        .forEach(i -> System.err.println("Index " + i.getCollection() + "." + i.getName()
+                                + " " + i.getStatus() + (i.getDetail() != null ? ": " + i.getDetail() : "")));
+                report.getQueries().stream()
+                        .filter(QueryPlan::isCollectionScan)
+                        .forEach(q -> System.err.println("COLLSCAN for query " + q.getQuery() + ": " + q.getStages()));
+                report.getQueries().stream()
+                        .filter(QueryPlan::isInMemorySort)
+                        .forEach(q -> System.err.println("In-memory SORT for query " + q.getQuery() + ": " + q.getStages()));
+            } catch (Exception e) {
+                System.err.println("Mongo index management failed: " + e.getMessage());
+            }
+        }, "mongo-index-manager");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public IndexReport getLastReport() {
+        return lastReport;
+    }
+
+    // Serialized with a lock, not a monitor, so callers on virtual threads are not pinned during index builds
+    public IndexReport refresh() {
+        refreshLock.lock();
+        try {
+            List<IndexStatus> indexes = new ArrayList<>();
+            IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+            for (Class<?> document : MANAGED_DOCUMENTS) {
+                IndexOperations indexOps = mongoTemplate.indexOps(document);
+                resolver.resolveIndexFor(document).forEach(definition ->
+                        indexes.add(ensure(indexOps, (IndexDefinitionHolder) definition)));
+            }
+            lastReport = new IndexReport(Instant.now(), indexes, explainHotQueries());
+            return lastReport;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private IndexStatus ensure(IndexOperations indexOps, IndexDefinitionHolder definition) {
+        String name = definition.getIndexOptions().getString("name");
+        boolean unique = Boolean.TRUE.equals(definition.getIndexOptions().getBoolean("unique"));
+        List<String> keys = new ArrayList<>(definition.getIndexKeys().keySet());
+        String collection = definition.getCollection();
+
+        for (IndexInfo existing : indexOps.getIndexInfo()) {
+            List<String> existingKeys = existing.getIndexFields().stream().map(IndexField::getKey).toList();
+            boolean sameName = existing.getName().equals(name);
+            if (!sameName && !existingKeys.equals(keys)) {
+                continue;
+            }
+            if (existingKeys.equals(keys) && existing.isUnique() == unique) {
+                // Possibly created by hand under another name; equivalent either way
+                return new IndexStatus(collection, name, keys, unique, "PRESENT",
+                        sameName ? null : "exists as " + existing.getName());
+            }
+            return new IndexStatus(collection, name, keys, unique, "MISMATCH",
+                    "existing index " + existing.getName() + " has keys " + existingKeys
+                            + (existing.isUnique() ? " (unique)" : ""));
+        }
+
+        try {
+            indexOps.ensureIndex(definition);
+            return new IndexStatus(collection, name, keys, unique, "CREATED", null);
+        } catch (Exception e) {
+            // Typically duplicate values blocking a unique index
+            return new IndexStatus(collection, name, keys, unique, "FAILED", e.getMessage());
+        }
+    }
+
+    // Probe values never match real documents; only the chosen plan matters
+    private List<QueryPlan> explainHotQueries() {
+        Date since = Date.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        List<QueryPlan> plans = new ArrayList<>();
+        plans.add(explain("users.findByEmail", "users",
+                new Document("email", "probe@index-check.invalid"), null));
+        plans.add(explain("users.search.exact", "users",
+                new Document("searchTerms", "probe"), new Document("_id", 1)));
+        plans.add(explain("users.search.prefix", "users",
+                new Document("searchPrefixes", "probe"), new Document("_id", 1)));
+        plans.add(explain("tokens.byUserAndType", "tokens",
+                new Document("userId", "probe").append("type", "VERIFICATION"), null));
+        plans.add(explain("live_locations.route", "live_locations",
+                new Document("userId", "probe").append("timestamp", new Document("$gte", since)),
+                new Document("timestamp", 1)));
+        plans.add(explain("followers.byUserAndFollower", "followers",
+                new Document("userId", "probe").append("followerId", "probe"), null));
+        plans.add(explain("mail_outbox.due", "mail_outbox",
+                new Document("status", "PENDING").append("nextAttemptAt", new Document("$lte", new Date())),
+                new Document("nextAttemptAt", 1)));
+        plans.add(explain("event_outbox.due", "event_outbox",
+                new Document("publishedAt", null).append("availableAt", new Document("$lte", new Date())),
+                new Document("availableAt", 1)));
+        plans.add(explain("likes.byTarget", "likes", new Document("targetId", "probe"), null));
+        plans.add(explain("reviews.byTarget", "reviews", new Document("targetId", "probe"), null));
+        return plans;
+    }
+
+    private QueryPlan explain(String name, String collection, Document filter, Document sort) {
+        Document find = new Document("find", collection).append("filter", filter).append("limit", 1);
+        if (sort != null) {
+            find.append("sort", sort);
+        }
+        List<String> stages = new ArrayList<>();
+        try {
+            Document explained = mongoTemplate.getDb().runCommand(
+                    new Document("explain", find).append("verbosity", "queryPlanner"));
+            collectStages(explained, stages);
+        } catch (Exception e) {
+            stages.add("ERROR: " + e.getMessage());
+        }
+        return new QueryPlan(name, collection, stages, stages.contains("COLLSCAN"), stages.contains("SORT"));
+    }
+
+    // Walks the winning plan (including plans nested in aggregation stages for time-series
+    // collections), skipping rejected alternatives
+    private void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document document) {
+            Object stage = document.get("stage");
+            if (stage instanceof String stageName) {
+                Object indexName = document.get("indexName");
+                stages.add(indexName != null ? stageName + "(" + indexName + ")" : stageName);
+            }
+            for (Map.Entry<String, Object> entry : document.entrySet()) {
+                if (!"rejectedPlans".equals(entry.getKey())) {
+                    collectStages(entry.getValue(), stages);
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            list.forEach(item -> collectStages(item, stages));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.garbigo.auth.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+// Makes @Transactional service methods real Mongo transactions, so a user and its outbox
+// event commit together. Transactions need a replica set or sharded cluster; on a standalone
+// server leave this off and the writes are made one after the other.
+@Configuration
+@ConditionalOnProperty(name = "events.outbox.transactional", havingValue = "true")
+public class MongoTransactionConfig {
+
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
@@ -1,18 +1,58 @@
 package com.garbigo.auth.config;
 
+import com.garbigo.auth.event.BinaryEventCodec;
+import com.garbigo.auth.event.EventCodec;
+import com.garbigo.auth.event.EventMessageConverter;
+import com.garbigo.auth.event.JsonEventCodec;
+import com.garbigo.auth.event.UserCreatedEvent;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
+// User events go to a durable topic exchange with the event type as routing key. Each
+// downstream service binds its own queue (user.* or a specific type) and scales its consumers
+// independently; the queue this service has always declared is bound for user.created.
 @Configuration
 public class RabbitMQConfig {
 
     @Value("${rabbitmq.queue.user-created}")
     private String userCreatedQueue;
 
+    @Value("${rabbitmq.exchange.user-events:garbigo.user.events}")
+    private String userEventsExchange;
+
     @Bean
     public Queue userCreatedQueue() {
         return new Queue(userCreatedQueue, true);
     }
-}
\ No newline at end of file
+
+    @Bean
+    public TopicExchange userEventsExchange() {
+        return new TopicExchange(userEventsExchange, true, false);
+    }
+
+    @Bean
+    public Binding userCreatedBinding(Queue userCreatedQueue, TopicExchange userEventsExchange) {
+        return BindingBuilder.bind(userCreatedQueue).to(userEventsExchange).with(UserCreatedEvent.TYPE);
+    }
+
+    // Picked up by the auto-configured RabbitTemplate and listener containers
+    @Bean
+    public MessageConverter eventMessageConverter(@Value("${events.codec:json}") String codec) {
+        EventCodec json = new JsonEventCodec();
+        EventCodec binary = new BinaryEventCodec();
+        EventCodec encoder = switch (codec) {
+            case "json" -> json;
+            case "binary" -> binary;
+            default -> throw new IllegalArgumentException("Unknown events.codec: " + codec);
+        };
+        return new EventMessageConverter(encoder, List.of(json, binary));
+    }
+}
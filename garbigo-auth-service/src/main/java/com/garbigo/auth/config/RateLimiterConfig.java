@@ -1,31 +1,48 @@
 package com.garbigo.auth.config;
 
-import org.redisson.api.RMapCache;
-import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
-
 @Configuration
 public class RateLimiterConfig {
 
-    @Value("${rate.limit.requests-per-minute:60}")
+    @Value("${rate-limit.requests-per-minute:60}")
     private int requestsPerMinute;
 
-    @Value("${rate.limit.window-in-seconds:60}")
+    @Value("${rate-limit.window-in-seconds:60}")
     private int windowInSeconds;
 
-    @Bean
-    public RMapCache<String, Integer> rateLimitCache(RedissonClient redissonClient) {
-        return redissonClient.getMapCache("rate_limiter_cache");
-    }
+    @Value("${rate-limit.local.enabled:true}")
+    private boolean localEnabled;
+
+    @Value("${rate-limit.local.max-overshoot-per-node:5}")
+    private int maxOvershootPerNode;
+
+    @Value("${rate-limit.local.sync-interval-millis:1000}")
+    private long syncIntervalMillis;
+
+    @Value("${rate-limit.local.max-keys:100000}")
+    private int maxLocalKeys;
+
+    @Value("${rate-limit.local.redis-retry-millis:5000}")
+    private long redisRetryMillis;
 
     @Bean
     public RateLimitProperties rateLimitProperties() {
-        return new RateLimitProperties(requestsPerMinute, windowInSeconds);
+        return new RateLimitProperties(requestsPerMinute, windowInSeconds,
+                new LocalTier(localEnabled, maxOvershootPerNode, syncIntervalMillis, maxLocalKeys, redisRetryMillis));
     }
 
-    public record RateLimitProperties(int requestsPerMinute, int windowInSeconds) {}
-}
\ No newline at end of file
+    public record RateLimitProperties(int requestsPerMinute, int windowInSeconds, LocalTier local) {}
+
+    // maxOvershootPerNode: requests a node may admit per key before reporting them to Redis.
+    // Across N nodes a key can exceed its limit by at most N * maxOvershootPerNode.
+    public record LocalTier(boolean enabled, int maxOvershootPerNode, long syncIntervalMillis,
+                            int maxKeys, long redisRetryMillis) {
+
+        public static LocalTier disabled() {
+            return new LocalTier(false, 0, 0, 0, 0);
+        }
+    }
+}
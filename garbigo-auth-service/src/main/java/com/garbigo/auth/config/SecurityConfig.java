@@ -1,7 +1,12 @@
 package com.garbigo.auth.config;
 
+import com.garbigo.auth.security.BCryptCostCalibrator;
+import com.garbigo.auth.security.BoundedPasswordEncoder;
 import com.garbigo.auth.security.JwtFilter;
 import com.garbigo.auth.security.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -17,6 +22,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
@@ -30,9 +36,27 @@ public class SecurityConfig {
         this.userDetailsService = userDetailsService;
     }
 
+    // Hashes get the configured cost, the same on every node. Stored hashes with a lower cost are
+    // rehashed on the next successful login (UserDetailsServiceImpl). Calibration only reports
+    // the cost this node could afford, as a hint for choosing bcrypt-strength.
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${security.password.bcrypt-strength:10}") int cost,
+                                           @Value("${security.password.calibrate:false}") boolean calibrate,
+                                           @Value("${security.password.target-hash-millis:100}") long targetHashMillis,
+                                           @Value("${security.password.hashing-threads:0}") int threads,
+                                           @Value("${security.password.queue-capacity:16}") int queueCapacity) {
+        Gauge.builder("auth.password.bcrypt.cost", () -> cost).register(meterRegistry);
+        if (calibrate) {
+            int affordable = BCryptCostCalibrator.calibrate(Duration.ofMillis(targetHashMillis), 10, 14);
+            Gauge.builder("auth.password.bcrypt.affordable-cost", () -> affordable).register(meterRegistry);
+            if (affordable != cost) {
+                System.err.println("BCrypt cost is " + cost + "; this node fits cost " + affordable
+                        + " within " + targetHashMillis + " ms");
+            }
+        }
+        int hashingThreads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(cost), hashingThreads, queueCapacity, meterRegistry);
     }
 
     @Bean
@@ -52,6 +76,8 @@ public class SecurityConfig {
                     "/",
                     "/auth/signup",
                     "/auth/signin",
+                    "/auth/refresh",
+                    "/auth/logout",
                     "/auth/verify",
                     "/auth/reset-password/request",
                     "/auth/reset-password/confirm",
@@ -71,11 +97,17 @@ public class SecurityConfig {
                     "/favicon.ico"
                 ).permitAll()
 
+                // === FLEET TRACKING - STAFF ONLY ===
+                .requestMatchers("/users/collectors/active", "/users/collectors/stream", "/users/collectors/*/route")
+                    .hasAnyRole("ADMIN", "OPERATIONS", "SUPPORT")
+
                 // === PROTECTED ENDPOINTS ===
-                .requestMatchers("/users/profile", "/users/live-location").authenticated()
+                // Non-staff callers only get coarsened collector positions (UserController)
+                .requestMatchers("/users/profile", "/users/live-location", "/users/collectors/**").authenticated()
 
                 // === ADMIN ONLY ===
                 .requestMatchers("/users", "/users/**").hasRole("ADMIN")
+                .requestMatchers("/admin/**").hasRole("ADMIN")
 
                 // === EVERYTHING ELSE ===
                 .anyRequest().authenticated()
@@ -92,6 +124,8 @@ public class SecurityConfig {
         config.setAllowedOriginPatterns(List.of("*")); // For testing - restrict in production
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
+        // Browsers hide non-safelisted response headers from scripts unless they are exposed
+        config.setExposedHeaders(List.of("X-Next-Cursor", "Retry-After"));
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,21 @@
+package com.garbigo.auth.config;
+
+import com.garbigo.auth.model.User;
+import com.garbigo.auth.util.SearchTerms;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Recomputes User.searchTerms and searchPrefixes on every save so the search indexes never drift from names and email
+@Component
+public class UserSearchTermsCallback implements BeforeConvertCallback<User> {
+
+    @Override
+    public User onBeforeConvert(User user, String collection) {
+        List<String> terms = SearchTerms.of(user.getEmail(), user.getFirstName(), user.getMiddleName(), user.getLastName());
+        user.setSearchTerms(terms);
+        user.setSearchPrefixes(SearchTerms.prefixes(terms));
+        return user;
+    }
+}
@@ -0,0 +1,112 @@
+package com.garbigo.auth.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Watches the virtual-thread scheduler when spring.threads.virtual.enabled is on. Pinning
+// (a virtual thread blocking inside synchronized or native code, typically in a driver) is
+// streamed from JFR into metrics, and the first pin at each call site is logged with the
+// frame responsible. Carrier gauges show how busy the scheduler's platform threads are.
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadMonitor {
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final String SUBMIT_FAILED = "jdk.VirtualThreadSubmitFailed";
+    private static final int MAX_REPORTED_SITES = 200;
+
+    private final Counter pinned;
+    private final Timer pinnedDuration;
+    private final Counter submitFailed;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private final long pinnedThresholdMillis;
+    private RecordingStream stream;
+
+    public VirtualThreadMonitor(MeterRegistry meterRegistry,
+                                @Value("${virtual-threads.pinned-threshold-millis:20}") long pinnedThresholdMillis) {
+        this.pinnedThresholdMillis = pinnedThresholdMillis;
+        this.pinned = meterRegistry.counter("auth.virtual-threads.pinned");
+        this.pinnedDuration = Timer.builder("auth.virtual-threads.pinned.duration").register(meterRegistry);
+        this.submitFailed = meterRegistry.counter("auth.virtual-threads.submit.failed");
+
+        int parallelism = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        Gauge.builder("auth.virtual-threads.carriers.parallelism", () -> parallelism).register(meterRegistry);
+        Gauge.builder("auth.virtual-threads.carriers.live", VirtualThreadMonitor::liveCarriers).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED).withThreshold(Duration.ofMillis(pinnedThresholdMillis)).withStackTrace();
+        stream.enable(SUBMIT_FAILED);
+        stream.onEvent(PINNED, this::onPinned);
+        stream.onEvent(SUBMIT_FAILED, event -> submitFailed.increment());
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    void stop() {
+        stream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.increment();
+        pinnedDuration.record(event.getDuration());
+
+        String site = pinningSite(event.getStackTrace());
+        if (reportedSites.size() < MAX_REPORTED_SITES && reportedSites.add(site)) {
+            System.err.println("Virtual thread pinned for " + event.getDuration().toMillis() + " ms at " + site);
+        }
+    }
+
+    // The innermost frame outside the JDK, i.e. the library or application code holding the monitor
+    private static String pinningSite(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "jdk";
+    }
+
+    // Carriers are platform threads of class CarrierThread; enumerating thread groups is cheap,
+    // unlike thread dumps, so this is fine to evaluate per scrape
+    private static int liveCarriers() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Thread[] threads = new Thread[root.activeCount() * 2];
+        int count = root.enumerate(threads, true);
+        int carriers = 0;
+        for (int i = 0; i < count; i++) {
+            if ("jdk.internal.misc.CarrierThread".equals(threads[i].getClass().getName())) {
+                carriers++;
+            }
+        }
+        return carriers;
+    }
+}
@@ -0,0 +1,35 @@
+package com.garbigo.auth.controller;
+
+import com.garbigo.auth.config.MongoIndexManager;
+import com.garbigo.auth.dto.IndexReport;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+
+    private final MongoIndexManager mongoIndexManager;
+
+    public AdminController(MongoIndexManager mongoIndexManager) {
+        this.mongoIndexManager = mongoIndexManager;
+    }
+
+    // Index status and query plans from the last check (run at startup)
+    @GetMapping("/indexes")
+    public ResponseEntity<IndexReport> getIndexReport() {
+        IndexReport report = mongoIndexManager.getLastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+
+    // Re-apply declared indexes and re-explain the hot queries now
+    @PostMapping("/indexes/verify")
+    public ResponseEntity<IndexReport> verifyIndexes() {
+        return ResponseEntity.ok(mongoIndexManager.refresh());
+    }
+}
@@ -3,6 +3,7 @@ package com.garbigo.auth.controller;
 import com.garbigo.auth.dto.*;
 import com.garbigo.auth.service.AuthService;
 import com.garbigo.auth.service.SocialAuthService;
+import com.garbigo.auth.util.RateLimit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,16 +20,34 @@ public class AuthController {
     }
 
     @PostMapping("/signup")
+    @RateLimit(name = "signup")
     public ResponseEntity<AuthResponse> signup(@RequestBody SignupRequest request) {
         return ResponseEntity.ok(authService.signup(request));
     }
 
     @PostMapping("/signin")
+    @RateLimit(name = "signin")
+    @RateLimit(name = "signin-email", key = RateLimit.Key.EMAIL, requests = 10, windowInSeconds = 300)
     public ResponseEntity<AuthResponse> signin(@RequestBody AuthRequest request) {
         return ResponseEntity.ok(authService.signin(request));
     }
 
+    // Exchanges a refresh token for a new access token and its rotated successor
+    @PostMapping("/refresh")
+    @RateLimit(name = "refresh")
+    public ResponseEntity<AuthResponse> refresh(@RequestBody RefreshTokenRequest request) {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
+
+    @PostMapping("/logout")
+    @RateLimit(name = "logout")
+    public ResponseEntity<String> logout(@RequestBody RefreshTokenRequest request) {
+        authService.logout(request);
+        return ResponseEntity.ok("Logged out");
+    }
+
     @GetMapping("/verify")
+    @RateLimit(name = "verify")
     public ResponseEntity<String> verify(@RequestParam String token) {
         authService.verifyAccount(token);
         return ResponseEntity.ok("Account verified successfully");
@@ -36,40 +55,49 @@ public class AuthController {
 
     // Endpoint for Resending Verification Email
     @PostMapping("/resend-verification")
+    @RateLimit(name = "resend-verification")
+    @RateLimit(name = "resend-verification-email", key = RateLimit.Key.EMAIL, requests = 3, windowInSeconds = 3600)
     public ResponseEntity<String> resendVerification(@RequestBody AuthRequest request) {
         authService.resendVerificationEmail(request.getEmail());
         return ResponseEntity.ok("Verification email resent");
     }
 
     @PostMapping("/reset-password/request")
+    @RateLimit(name = "reset-password")
+    @RateLimit(name = "reset-password-email", key = RateLimit.Key.EMAIL, requests = 3, windowInSeconds = 3600)
     public ResponseEntity<String> requestPasswordReset(@RequestBody PasswordResetRequest request) {
         authService.requestPasswordReset(request.getEmail());
         return ResponseEntity.ok("Password reset link sent to email");
     }
 
     @PostMapping("/reset-password/confirm")
+    @RateLimit(name = "reset-password-confirm")
     public ResponseEntity<String> confirmPasswordReset(@RequestParam String token, @RequestBody ChangePasswordRequest request) {
         authService.resetPassword(token, request.getNewPassword());
         return ResponseEntity.ok("Password reset successfully");
     }
 
     @PostMapping("/change-password")
+    @RateLimit(name = "change-password", key = RateLimit.Key.USER, requests = 5, windowInSeconds = 300)
     public ResponseEntity<String> changePassword(@RequestBody ChangePasswordRequest request) {
         authService.changePassword(request);
         return ResponseEntity.ok("Password changed successfully");
     }
 
     @PostMapping("/social/google")
+    @RateLimit(name = "social-login")
     public ResponseEntity<AuthResponse> googleLogin(@RequestBody SocialLoginRequest request) {
         return ResponseEntity.ok(socialAuthService.googleLogin(request));
     }
 
     @PostMapping("/social/facebook")
+    @RateLimit(name = "social-login")
     public ResponseEntity<AuthResponse> facebookLogin(@RequestBody SocialLoginRequest request) {
         return ResponseEntity.ok(socialAuthService.facebookLogin(request));
     }
 
     @PostMapping("/social/apple")
+    @RateLimit(name = "social-login")
     public ResponseEntity<AuthResponse> appleLogin(@RequestBody SocialLoginRequest request) {
         return ResponseEntity.ok(socialAuthService.appleLogin(request));
     }
@@ -1,32 +1,59 @@
 package com.garbigo.auth.controller;
 
+import com.garbigo.auth.dto.CollectorPosition;
+import com.garbigo.auth.dto.NearbyCollector;
 import com.garbigo.auth.dto.ProfileUpdateRequest;
 import com.garbigo.auth.dto.UserDto;
+import com.garbigo.auth.dto.UserPage;
 import com.garbigo.auth.model.LiveLocation;
+import com.garbigo.auth.model.Role;
 import com.garbigo.auth.model.User;
-import com.garbigo.auth.repository.LiveLocationRepository;
+import com.garbigo.auth.service.CollectorPositionBroadcaster;
+import com.garbigo.auth.service.CollectorPositionRegistry;
+import com.garbigo.auth.service.LiveLocationIngestionService;
+import com.garbigo.auth.service.RouteHistoryService;
 import com.garbigo.auth.service.UserService;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.garbigo.auth.util.RateLimit;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
-    private final UserService userService;
+    // Two decimal places, ~1.1 km
+    private static final int COARSE_DEGREES_SCALE = 100;
 
-    @Autowired
-    private LiveLocationRepository liveLocationRepository;
+    private final UserService userService;
+    private final LiveLocationIngestionService liveLocationIngestionService;
+    private final CollectorPositionRegistry collectorPositionRegistry;
+    private final RouteHistoryService routeHistoryService;
+    private final CollectorPositionBroadcaster collectorPositionBroadcaster;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService,
+                          LiveLocationIngestionService liveLocationIngestionService,
+                          CollectorPositionRegistry collectorPositionRegistry,
+                          RouteHistoryService routeHistoryService,
+                          CollectorPositionBroadcaster collectorPositionBroadcaster) {
         this.userService = userService;
+        this.liveLocationIngestionService = liveLocationIngestionService;
+        this.collectorPositionRegistry = collectorPositionRegistry;
+        this.routeHistoryService = routeHistoryService;
+        this.collectorPositionBroadcaster = collectorPositionBroadcaster;
     }
 
     // Update current user profile (existing)
@@ -37,10 +64,17 @@ public class UserController {
 
     // Live location update from mobile app (Collector)
     @PostMapping("/live-location")
+    @RateLimit(name = "live-location", key = RateLimit.Key.USER, requests = 120, windowInSeconds = 60)
     public ResponseEntity<?> updateLiveLocation(
             @AuthenticationPrincipal User authenticatedUser,
             @RequestBody Map<String, Object> locationData) {
 
+        // Only collectors are tracked; anyone else's position would show up in the fleet queries
+        if (authenticatedUser == null || authenticatedUser.getRole() != Role.COLLECTOR) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Only collectors can report live location"));
+        }
+
         try {
             // Validate and parse required fields
             Object latObj = locationData.get("latitude");
@@ -52,22 +86,33 @@ public class UserController {
 
             double latitude = Double.parseDouble(latObj.toString());
             double longitude = Double.parseDouble(lngObj.toString());
+            // Also rejects NaN and Infinity, which would poison the grid and fail the whole history batch
+            if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "latitude must be within [-90, 90] and longitude within [-180, 180]"));
+            }
 
-            // Optional timestamp, default to now
-            long timestampMillis = System.currentTimeMillis();
+            // Optional timestamp, default to now; a device clock ahead of ours is not trusted
+            long receivedMillis = System.currentTimeMillis();
+            long timestampMillis = receivedMillis;
             if (locationData.containsKey("timestamp")) {
-                timestampMillis = Long.parseLong(locationData.get("timestamp").toString());
+                timestampMillis = Math.min(Long.parseLong(locationData.get("timestamp").toString()), receivedMillis);
             }
             Instant timestamp = Instant.ofEpochMilli(timestampMillis);
 
-            // Save live location
+            // Queue live location; it is written to Mongo in the next batch
             LiveLocation liveLocation = new LiveLocation();
             liveLocation.setUserId(authenticatedUser.getId());
             liveLocation.setLatitude(latitude);
             liveLocation.setLongitude(longitude);
+            liveLocation.setLocation(new GeoJsonPoint(longitude, latitude));
             liveLocation.setTimestamp(timestamp);
 
-            liveLocationRepository.save(liveLocation);
+            if (!liveLocationIngestionService.submit(liveLocation)) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(Map.of("error", "Location updates are backlogged, retry shortly"));
+            }
 
             return ResponseEntity.ok(Map.of(
                     "message", "Location updated successfully",
@@ -85,11 +130,127 @@ public class UserController {
         }
     }
 
-    // Admin: Get all users
+    // Latest known position of one collector (served from memory)
+    @GetMapping("/collectors/{id}/location")
+    public ResponseEntity<CollectorPosition> getCollectorLocation(@AuthenticationPrincipal User authenticatedUser,
+                                                                  @PathVariable String id) {
+        CollectorPosition position = collectorPositionRegistry.get(id);
+        if (position == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!isStaff(authenticatedUser) && (authenticatedUser == null || !id.equals(authenticatedUser.getId()))) {
+            position = new CollectorPosition(position.getUserId(), coarse(position.getLatitude()),
+                    coarse(position.getLongitude()), position.getTimestamp().truncatedTo(ChronoUnit.MINUTES));
+        }
+        return ResponseEntity.ok(position);
+    }
+
+    // Latest positions of every collector that reported within the idle timeout
+    @GetMapping("/collectors/active")
+    public ResponseEntity<List<CollectorPosition>> getActiveCollectors() {
+        return ResponseEntity.ok(collectorPositionRegistry.active());
+    }
+
+    // Route of one collector as NDJSON chunks of encoded polylines; defaults to the last 12 hours
+    @GetMapping("/collectors/{id}/route")
+    public ResponseEntity<StreamingResponseBody> getCollectorRoute(
+            @PathVariable String id,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "10") double toleranceMeters) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(12, ChronoUnit.HOURS);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(routeHistoryService.route(id, start, end, toleranceMeters));
+    }
+
+    // Server-sent position updates, filtered by collector ids or a minLat,minLon,maxLat,maxLon box
+    @GetMapping(value = "/collectors/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamCollectorPositions(
+            @RequestParam(required = false) Set<String> ids,
+            @RequestParam(required = false) double[] bbox) {
+        if (bbox != null && (bbox.length != 4 || bbox[0] > bbox[2] || bbox[1] > bbox[3])) {
+            return ResponseEntity.badRequest().build();
+        }
+        SseEmitter emitter = collectorPositionBroadcaster.subscribe(ids, bbox);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    // Collectors within radiusKm of a point, closest first
+    @GetMapping("/collectors/nearby")
+    public ResponseEntity<List<NearbyCollector>> getNearbyCollectors(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "2") double radiusKm,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal User authenticatedUser) {
+        return ResponseEntity.ok(forCaller(authenticatedUser,
+                collectorPositionRegistry.nearby(latitude, longitude, radiusKm, limit)));
+    }
+
+    // k collectors closest to a point
+    @GetMapping("/collectors/nearest")
+    public ResponseEntity<List<NearbyCollector>> getNearestCollectors(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "5") int k,
+            @AuthenticationPrincipal User authenticatedUser) {
+        return ResponseEntity.ok(forCaller(authenticatedUser,
+                collectorPositionRegistry.nearest(latitude, longitude, k)));
+    }
+
+    // Staff see exact positions; everyone else gets them rounded to about a kilometre, with distances
+    // to a tenth of a kilometre and times to the minute, enough to show availability without tracking
+    private static List<NearbyCollector> forCaller(User caller, List<NearbyCollector> collectors) {
+        if (isStaff(caller)) {
+            return collectors;
+        }
+        return collectors.stream()
+                .map(c -> new NearbyCollector(c.getUserId(), coarse(c.getLatitude()), coarse(c.getLongitude()),
+                        c.getTimestamp().truncatedTo(ChronoUnit.MINUTES), Math.round(c.getDistanceKm() * 10) / 10.0))
+                .toList();
+    }
+
+    private static boolean isStaff(User caller) {
+        return caller != null && caller.getRole() != null && switch (caller.getRole()) {
+            case ADMIN, OPERATIONS, SUPPORT -> true;
+            default -> false;
+        };
+    }
+
+    private static double coarse(double degrees) {
+        return Math.round(degrees * COARSE_DEGREES_SCALE) / (double) COARSE_DEGREES_SCALE;
+    }
+
+    // Admin: Get users one page at a time; pass nextCursor (also sent as X-Next-Cursor) back as 'after'
+    // for the next page. A null nextCursor means this was the last page.
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping
-    public ResponseEntity<List<UserDto>> getAllUsers(@RequestParam(required = false) String search) {
-        return ResponseEntity.ok(userService.getAllUsers(search));
+    public ResponseEntity<UserPage> getAllUsers(@RequestParam(required = false) String search,
+                                                @RequestParam(required = false) String after,
+                                                @RequestParam(required = false) Integer limit) {
+        UserPage page = userService.getUsers(search, after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page);
+    }
+
+    // Admin: Export all users as NDJSON
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(required = false) String search) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\"")
+                .body(userService.exportUsers(search));
     }
 
     // Admin: Create user
@@ -5,6 +5,8 @@ import lombok.Data;
 @Data
 public class AuthResponse {
     private String token;
+    private String refreshToken;
+    private long expiresIn; // seconds until token expires
     private String role;
     private String dashboardUrl;
     private boolean verified;
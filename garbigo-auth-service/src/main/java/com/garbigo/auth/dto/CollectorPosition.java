@@ -0,0 +1,17 @@
+package com.garbigo.auth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CollectorPosition {
+    private String userId;
+    private double latitude;
+    private double longitude;
+    private Instant timestamp;
+}
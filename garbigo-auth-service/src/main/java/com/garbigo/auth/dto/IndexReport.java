@@ -0,0 +1,40 @@
+package com.garbigo.auth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexReport {
+    private Instant generatedAt;
+    private List<IndexStatus> indexes;
+    private List<QueryPlan> queries;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class IndexStatus {
+        private String collection;
+        private String name;
+        private List<String> keys;
+        private boolean unique;
+        private String status; // PRESENT, CREATED, MISMATCH or FAILED
+        private String detail;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class QueryPlan {
+        private String query;
+        private String collection;
+        private List<String> stages; // winning plan, outermost stage first
+        private boolean collectionScan;
+        private boolean inMemorySort; // a SORT stage: the index does not provide the requested order
+    }
+}
@@ -0,0 +1,18 @@
+package com.garbigo.auth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyCollector {
+    private String userId;
+    private double latitude;
+    private double longitude;
+    private Instant timestamp;
+    private double distanceKm;
+}
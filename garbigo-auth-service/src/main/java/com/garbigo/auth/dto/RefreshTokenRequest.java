@@ -0,0 +1,8 @@
+package com.garbigo.auth.dto;
+
+import lombok.Data;
+
+@Data
+public class RefreshTokenRequest {
+    private String refreshToken;
+}
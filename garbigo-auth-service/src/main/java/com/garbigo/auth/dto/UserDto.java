@@ -5,6 +5,12 @@ import lombok.Data;
 
 @Data
 public class UserDto {
+    // User document fields read when querying straight into UserDto
+    public static final String[] PROJECTED_FIELDS = {
+            "username", "firstName", "middleName", "lastName", "email", "phoneNumber", "homeAddress",
+            "profilePictureUrl", "role", "verified", "active", "archived"
+    };
+
     private String id;
     private String username;
     private String firstName;
@@ -0,0 +1,15 @@
+package com.garbigo.auth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPage {
+    private List<UserDto> users;
+    private String nextCursor; // null on the last page
+}
@@ -0,0 +1,141 @@
+package com.garbigo.auth.event;
+
+import java.nio.charset.StandardCharsets;
+
+// Compact positional encoding. Fields are written in declaration order: strings as a varint of
+// (UTF-8 length + 1), 0 meaning null, followed by the bytes; longs as 8 big-endian bytes.
+// Field order is the schema, so any change to it needs a new schema version.
+public class BinaryEventCodec implements EventCodec {
+
+    public static final String CONTENT_TYPE = "application/x-garbigo-event";
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(Object event) {
+        if (!(event instanceof UserCreatedEvent user)) {
+            throw new IllegalArgumentException("No binary encoding for " + event.getClass().getName());
+        }
+        byte[][] strings = {
+                utf8(user.userId()), utf8(user.email()), utf8(user.firstName()),
+                utf8(user.lastName()), utf8(user.phoneNumber()), utf8(user.role())};
+        int size = Long.BYTES;
+        for (byte[] string : strings) {
+            size += string == null ? 1 : varintSize(string.length + 1) + string.length;
+        }
+
+        Writer out = new Writer(new byte[size]);
+        for (byte[] string : strings) {
+            out.bytes(string);
+        }
+        out.fixedLong(user.createdAt());
+        return out.buffer;
+    }
+
+    @Override
+    public Object decode(String type, int schemaVersion, byte[] body) {
+        if (!UserCreatedEvent.TYPE.equals(type) || schemaVersion != 1) {
+            throw new IllegalArgumentException("Unsupported event " + type + " v" + schemaVersion);
+        }
+        Reader in = new Reader(body);
+        return new UserCreatedEvent(in.string(), in.string(), in.string(),
+                in.string(), in.string(), in.string(), in.fixedLong());
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static final class Writer {
+        private final byte[] buffer;
+        private int position;
+
+        Writer(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        void bytes(byte[] value) {
+            if (value == null) {
+                buffer[position++] = 0;
+                return;
+            }
+            varint(value.length + 1);
+            System.arraycopy(value, 0, buffer, position, value.length);
+            position += value.length;
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void fixedLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        String string() {
+            int length = varint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > buffer.length - position) {
+                throw new IllegalArgumentException("Truncated event body");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = next();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in event body");
+        }
+
+        long fixedLong() {
+            long value = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << 8) | (next() & 0xFF);
+            }
+            return value;
+        }
+
+        private byte next() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Truncated event body");
+            }
+            return buffer[position++];
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.garbigo.auth.event;
+
+// Wire format for domain events. The event type and schema version travel in AMQP message
+// properties, so a body only has to carry the fields.
+public interface EventCodec {
+
+    String contentType();
+
+    byte[] encode(Object event);
+
+    Object decode(String type, int schemaVersion, byte[] body);
+}
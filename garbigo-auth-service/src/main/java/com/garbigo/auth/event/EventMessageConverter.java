@@ -0,0 +1,60 @@
+package com.garbigo.auth.event;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Encodes outgoing events with the configured codec and stamps the event type and schema
+// version on the message. Incoming messages are decoded by content type, so consumers of this
+// converter keep working while producers switch formats.
+public class EventMessageConverter implements MessageConverter {
+
+    public static final String SCHEMA_VERSION_HEADER = "x-schema-version";
+
+    private final EventCodec encoder;
+    private final Map<String, EventCodec> decoders = new HashMap<>();
+
+    public EventMessageConverter(EventCodec encoder, List<EventCodec> decoders) {
+        this.encoder = encoder;
+        decoders.forEach(codec -> this.decoders.put(codec.contentType(), codec));
+        this.decoders.put(encoder.contentType(), encoder);
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        if (!(object instanceof UserCreatedEvent)) {
+            throw new MessageConversionException("Not a known event: " + object.getClass().getName());
+        }
+        try {
+            byte[] body = encoder.encode(object);
+            messageProperties.setType(UserCreatedEvent.TYPE);
+            messageProperties.setHeader(SCHEMA_VERSION_HEADER, UserCreatedEvent.SCHEMA_VERSION);
+            messageProperties.setContentType(encoder.contentType());
+            messageProperties.setContentLength(body.length);
+            return new Message(body, messageProperties);
+        } catch (RuntimeException e) {
+            throw new MessageConversionException("Failed to encode " + UserCreatedEvent.TYPE, e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        EventCodec codec = decoders.get(properties.getContentType());
+        if (codec == null) {
+            throw new MessageConversionException("Unsupported content type " + properties.getContentType());
+        }
+        Object version = properties.getHeader(SCHEMA_VERSION_HEADER);
+        try {
+            return codec.decode(properties.getType(),
+                    version instanceof Number number ? number.intValue() : 1, message.getBody());
+        } catch (RuntimeException e) {
+            throw new MessageConversionException("Failed to decode " + properties.getType(), e);
+        }
+    }
+}
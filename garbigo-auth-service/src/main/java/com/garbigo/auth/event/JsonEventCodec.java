@@ -0,0 +1,52 @@
+package com.garbigo.auth.event;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Plain JSON, readable by any consumer. Unknown properties are ignored so fields can be added
+// without a version bump.
+public class JsonEventCodec implements EventCodec {
+
+    public static final String CONTENT_TYPE = "application/json";
+
+    private final ObjectWriter writer;
+    private final ObjectReader userCreatedReader;
+
+    public JsonEventCodec() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.writer = objectMapper.writer();
+        this.userCreatedReader = objectMapper.readerFor(UserCreatedEvent.class);
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(Object event) {
+        try {
+            return writer.writeValueAsBytes(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Object decode(String type, int schemaVersion, byte[] body) {
+        try {
+            if (UserCreatedEvent.TYPE.equals(type) && schemaVersion == 1) {
+                return userCreatedReader.readValue(body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        throw new IllegalArgumentException("Unsupported event " + type + " v" + schemaVersion);
+    }
+}
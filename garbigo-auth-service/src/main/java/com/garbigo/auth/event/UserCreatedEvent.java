@@ -0,0 +1,24 @@
+package com.garbigo.auth.event;
+
+import com.garbigo.auth.model.User;
+
+// What downstream services receive when an account is created; deliberately excludes the
+// password hash and anything else not needed to provision the user elsewhere
+public record UserCreatedEvent(String userId,
+                               String email,
+                               String firstName,
+                               String lastName,
+                               String phoneNumber,
+                               String role,
+                               long createdAt) {
+
+    public static final String TYPE = "user.created";
+    // Bump on any change to the components (added, removed, reordered or retyped): the binary
+    // codec is positional, so its consumers cannot skip a field they do not know about
+    public static final int SCHEMA_VERSION = 1;
+
+    public static UserCreatedEvent from(User user) {
+        return new UserCreatedEvent(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                user.getPhoneNumber(), user.getRole().name(), System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,8 @@
+package com.garbigo.auth.exception;
+
+// Password hashing capacity is exhausted; mapped to 503 so clients back off and retry
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException() {
+        super("Too many sign-in requests, please retry shortly");
+    }
+}
@@ -0,0 +1,62 @@
+package com.garbigo.auth.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// One ProviderHttpClient per external provider, configured under outbound-http.providers.<name>.
+// Each provider gets its own HttpClient so connect timeouts and connection pools are isolated;
+// all of them complete responses on a shared virtual-thread executor.
+@Component
+public class OutboundHttp {
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, ProviderHttpClient> providers = new ConcurrentHashMap<>();
+
+    public OutboundHttp(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public ProviderHttpClient provider(String name) {
+        return providers.computeIfAbsent(name, this::create);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    private ProviderHttpClient create(String name) {
+        String prefix = "outbound-http.providers." + name + ".";
+        long connectTimeout = property(prefix + "connect-timeout-millis", "outbound-http.connect-timeout-millis", 2000L);
+        long requestTimeout = property(prefix + "request-timeout-millis", "outbound-http.request-timeout-millis", 5000L);
+        long maxConcurrent = property(prefix + "max-concurrent", "outbound-http.max-concurrent", 50L);
+        long bulkheadWait = property(prefix + "bulkhead-wait-millis", "outbound-http.bulkhead-wait-millis", 100L);
+
+        // HTTP/2 where the provider supports it, HTTP/1.1 keep-alive otherwise
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeout))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        return new ProviderHttpClient(name, httpClient, Duration.ofMillis(requestTimeout), (int) maxConcurrent,
+                Duration.ofMillis(bulkheadWait), meterRegistry);
+    }
+
+    private long property(String key, String fallbackKey, long defaultValue) {
+        Long fallback = environment.getProperty(fallbackKey, Long.class, defaultValue);
+        return environment.getProperty(key, Long.class, fallback);
+    }
+}
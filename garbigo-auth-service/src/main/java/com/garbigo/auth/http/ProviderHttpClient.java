@@ -0,0 +1,132 @@
+package com.garbigo.auth.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Outbound calls to one external provider. Requests share the provider's pooled HTTP/2
+// connections, are bounded by a request timeout, and pass a bulkhead: at most maxConcurrent
+// calls in flight, and callers that cannot get a permit within bulkheadWait are rejected
+// instead of queuing behind a slow provider.
+public class ProviderHttpClient {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String provider;
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final Duration bulkheadWait;
+    private final Semaphore bulkhead;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    public ProviderHttpClient(String provider, HttpClient httpClient, Duration requestTimeout,
+                              int maxConcurrent, Duration bulkheadWait, MeterRegistry meterRegistry) {
+        this.provider = provider;
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+        this.bulkheadWait = bulkheadWait;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.meterRegistry = meterRegistry;
+        this.rejected = meterRegistry.counter("auth.outbound.http.rejected", "provider", provider);
+        Gauge.builder("auth.outbound.http.in-flight", bulkhead, b -> maxConcurrent - b.availablePermits())
+                .tag("provider", provider)
+                .register(meterRegistry);
+    }
+
+    public String provider() {
+        return provider;
+    }
+
+    public HttpResponse<byte[]> get(URI uri) throws IOException {
+        try {
+            return getAsync(uri).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    // Completes exceptionally with IOException (HttpTimeoutException on timeout) or
+    // RejectedExecutionException when the bulkhead is full
+    public CompletableFuture<HttpResponse<byte[]>> getAsync(URI uri) {
+        try {
+            if (!bulkhead.tryAcquire(bulkheadWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException(provider + " has too many requests in flight"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new IOException("Interrupted waiting for " + provider, e));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(requestTimeout).GET().build();
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> response;
+        try {
+            response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+        return response.whenComplete((result, error) -> {
+            bulkhead.release();
+            Timer.builder("auth.outbound.http.latency")
+                    .tag("provider", provider)
+                    .tag("outcome", outcome(result, error))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    // Non-2xx responses fail with IOException carrying the status
+    public CompletableFuture<JsonNode> getJsonAsync(URI uri) {
+        return getAsync(uri).thenApply(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new UncheckedIOException(new IOException(provider + " returned HTTP " + response.statusCode()));
+            }
+            try {
+                return OBJECT_MAPPER.readTree(response.body());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String outcome(HttpResponse<?> response, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            return cause instanceof HttpTimeoutException ? "TIMEOUT" : "ERROR";
+        }
+        return switch (response.statusCode() / 100) {
+            case 2 -> "SUCCESS";
+            case 4 -> "CLIENT_ERROR";
+            case 5 -> "SERVER_ERROR";
+            default -> "OTHER";
+        };
+    }
+}
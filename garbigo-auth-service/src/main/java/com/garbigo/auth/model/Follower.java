@@ -3,12 +3,14 @@ package com.garbigo.auth.model;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "followers")
+@CompoundIndex(name = "userId_followerId", def = "{'userId': 1, 'followerId': 1}", unique = true)
 public class Follower {
     private String id;
     private String userId;
@@ -3,6 +3,7 @@ package com.garbigo.auth.model;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
 public class Like {
     private String id;
     private String userId;
+    @Indexed(name = "targetId")
     private String targetId;
 
     @CreatedDate
@@ -1,10 +1,19 @@
 package com.garbigo.auth.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TimeSeries;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
 import java.time.Instant;
 
+// Time-series collection; created with a configurable TTL by LiveLocationCollectionInitializer
 @Document(collection = "live_locations")
+@TimeSeries(timeField = "timestamp", metaField = "userId", granularity = Granularity.SECONDS)
+@CompoundIndex(name = "userId_timestamp", def = "{'userId': 1, 'timestamp': -1}")
 public class LiveLocation {
 
     @Id
@@ -16,6 +25,10 @@ public class LiveLocation {
 
     private double longitude;
 
+    // GeoJSON copy of latitude/longitude for 2dsphere queries
+    @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+    private GeoJsonPoint location;
+
     private Instant timestamp = Instant.now();
 
     // Getters and Setters
@@ -31,6 +44,9 @@ public class LiveLocation {
     public double getLongitude() { return longitude; }
     public void setLongitude(double longitude) { this.longitude = longitude; }
 
+    public GeoJsonPoint getLocation() { return location; }
+    public void setLocation(GeoJsonPoint location) { this.location = location; }
+
     public Instant getTimestamp() { return timestamp; }
     public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.garbigo.auth.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+// Downsampled route of one user for one hour, built from live_locations by LiveLocationRollupService
+@Data
+@Document(collection = "live_location_rollups")
+public class LiveLocationRollup {
+    @Id
+    private String id; // userId:hourEpochSeconds
+
+    private String userId;
+    private Instant hour;
+    private int count;
+    private List<Point> points;
+
+    @Data
+    public static class Point {
+        private Instant t;
+        private double latitude;
+        private double longitude;
+    }
+}
@@ -0,0 +1,38 @@
+package com.garbigo.auth.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.Map;
+
+// Durable outbox entry for one email, delivered by MailOutboxService
+@Data
+@Document(collection = "mail_outbox")
+@CompoundIndex(name = "status_nextAttemptAt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class MailMessage {
+
+    @Id
+    private String id;
+
+    private String to;
+    private String template;
+    private Map<String, String> model; // cleared once sent; may hold one-time tokens
+    private String locale; // BCP 47 tag of the recipient's language, null for the default
+
+    private MailStatus status = MailStatus.PENDING;
+    private int attempts;
+    private Date nextAttemptAt;
+    private Date lockedUntil;
+    private String lastError;
+
+    private Date createdAt;
+    private Date sentAt;
+
+    // Set when the message reaches SENT or DEAD; the TTL index removes it afterwards
+    @Indexed(name = "expireAt_ttl", expireAfter = "0s")
+    private Date expireAt;
+}
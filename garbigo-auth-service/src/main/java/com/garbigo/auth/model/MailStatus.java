@@ -0,0 +1,8 @@
+package com.garbigo.auth.model;
+
+public enum MailStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    DEAD
+}
@@ -0,0 +1,35 @@
+package com.garbigo.auth.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// Domain event waiting to be published to RabbitMQ by EventOutboxService. The id doubles as
+// the AMQP message id, so consumers can drop redeliveries.
+@Data
+@Document(collection = "event_outbox")
+@CompoundIndex(name = "publishedAt_availableAt", def = "{'publishedAt': 1, 'availableAt': 1}")
+public class OutboxEvent {
+
+    @Id
+    private String id;
+
+    private String type;
+    private String aggregateId;
+    private Object payload;
+
+    private Date createdAt;
+    private Date availableAt; // pushed forward while a relay holds the event or after a failed publish
+    private String claimedBy;
+    private int attempts;
+    private String lastError;
+    private Date publishedAt;
+
+    // Set once published; the TTL index removes the event afterwards
+    @Indexed(name = "expireAt_ttl", expireAfter = "0s")
+    private Date expireAt;
+}
@@ -2,19 +2,29 @@ package com.garbigo.auth.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
+import java.util.Date;
 
+// One-time token. The raw value is only ever sent to the user; the document is keyed by its
+// SHA-256 so lookups hit _id, and MongoDB deletes it once expiresAt has passed.
 @Data
 @Document(collection = "tokens")
+@CompoundIndex(name = "userId_type", def = "{'userId': 1, 'type': 1}", unique = true)
 public class Token {
-    private String id;
+    @Id
+    private String id; // hex SHA-256 of the raw token
+
     private String userId;
-    private String token;
-    private String type; // VERIFICATION or RESET
-    private long expiry;
+    private TokenType type;
+
+    @Indexed(name = "expiresAt_ttl", expireAfter = "0s")
+    private Date expiresAt;
 
     @CreatedDate
     private LocalDateTime createdAt;
-}
\ No newline at end of file
+}
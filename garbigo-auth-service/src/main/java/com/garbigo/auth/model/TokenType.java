@@ -0,0 +1,6 @@
+package com.garbigo.auth.model;
+
+public enum TokenType {
+    VERIFICATION,
+    RESET
+}
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -15,6 +18,10 @@ import java.util.List;
 
 @Data
 @Document(collection = "users")
+@CompoundIndexes({
+        @CompoundIndex(name = "searchTerms_id", def = "{'searchTerms': 1, '_id': 1}"),
+        @CompoundIndex(name = "searchPrefixes_id", def = "{'searchPrefixes': 1, '_id': 1}")
+})
 public class User implements UserDetails {
     @Id
     private String id;
@@ -23,6 +30,7 @@ public class User implements UserDetails {
     private String firstName;
     private String middleName;
     private String lastName;
+    @Indexed(name = "email_unique", unique = true)
     private String email;
     private String phoneNumber;
     private String homeAddress;
@@ -38,11 +46,20 @@ public class User implements UserDetails {
     private boolean active = true;
     private boolean archived = false;
 
+    // Bumped whenever previously issued JWTs must stop being accepted
+    private int tokenVersion = 0;
+
     private List<String> followers;
     private List<String> likes;
     private List<String> reviews;
     private List<String> liveLocations;
 
+    // Normalized email/name tokens for indexed search; maintained by UserSearchTermsCallback
+    private List<String> searchTerms;
+
+    // Leading substrings of searchTerms for prefix search; maintained by UserSearchTermsCallback
+    private List<String> searchPrefixes;
+
     @CreatedDate
     private LocalDateTime createdAt;
 
@@ -3,8 +3,5 @@ package com.garbigo.auth.repository;
 import com.garbigo.auth.model.Token;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-import java.util.Optional;
-
 public interface TokenRepository extends MongoRepository<Token, String> {
-    Optional<Token> findByToken(String token);
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.garbigo.auth.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+// Estimates the BCrypt cost this hardware affords: the highest cost whose hash still fits the
+// target time. Each cost step doubles the work, so timing the minimum cost is enough. Only
+// reported, never applied: nodes would disagree, and rehash-on-login would push every hash to
+// the highest cost any node picked.
+public final class BCryptCostCalibrator {
+
+    private static final int SAMPLES = 5;
+
+    private BCryptCostCalibrator() {
+    }
+
+    public static int calibrate(Duration target, int minCost, int maxCost) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minCost);
+        String hash = probe.encode("calibration-probe");
+
+        // Fastest of a few runs; the first ones include JIT warm-up
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            probe.matches("calibration-probe", hash);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        int cost = minCost;
+        long estimate = fastest;
+        while (cost < maxCost && estimate * 2 <= target.toNanos()) {
+            cost++;
+            estimate *= 2;
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,107 @@
+package com.garbigo.auth.security;
+
+import com.garbigo.auth.http.OutboundHttp;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.security.Key;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+// Verifies Apple and Google ID tokens against cached provider keys, so a social login costs no
+// remote round trip. Parsers are built once; signature, expiry and issuer are checked here and
+// the audience by the caller.
+@Component
+public class IdentityProviderKeys {
+
+    private static final String APPLE_ISSUER = "https://appleid.apple.com";
+    private static final Set<String> GOOGLE_ISSUERS = Set.of("accounts.google.com", "https://accounts.google.com");
+
+    private final JwksKeyCache appleKeys;
+    private final JwksKeyCache googleKeys;
+    private final JwtParser appleParser;
+    private final JwtParser googleParser;
+    private final Duration retryDelay;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "jwks-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public IdentityProviderKeys(OutboundHttp outboundHttp,
+                                MeterRegistry meterRegistry,
+                                @Value("${social.jwks.apple-url:https://appleid.apple.com/auth/keys}") String appleUrl,
+                                @Value("${social.jwks.google-url:https://www.googleapis.com/oauth2/v3/certs}") String googleUrl,
+                                @Value("${social.jwks.min-refetch-seconds:30}") long minRefetchSeconds,
+                                @Value("${social.jwks.default-max-age-minutes:60}") long defaultMaxAgeMinutes,
+                                @Value("${social.jwks.retry-seconds:60}") long retrySeconds) {
+        Duration minRefetch = Duration.ofSeconds(minRefetchSeconds);
+        Duration defaultMaxAge = Duration.ofMinutes(defaultMaxAgeMinutes);
+
+        this.appleKeys = new JwksKeyCache(URI.create(appleUrl), outboundHttp.provider("apple"), minRefetch, defaultMaxAge);
+        this.googleKeys = new JwksKeyCache(URI.create(googleUrl), outboundHttp.provider("google"), minRefetch, defaultMaxAge);
+        this.appleParser = parser(appleKeys, "Apple");
+        this.googleParser = parser(googleKeys, "Google");
+        this.retryDelay = Duration.ofSeconds(retrySeconds);
+
+        Gauge.builder("auth.social.jwks.keys", appleKeys, JwksKeyCache::size).tag("provider", "apple").register(meterRegistry);
+        Gauge.builder("auth.social.jwks.keys", googleKeys, JwksKeyCache::size).tag("provider", "google").register(meterRegistry);
+    }
+
+    // Warms both caches in the background; startup does not depend on the providers being reachable
+    @PostConstruct
+    void start() {
+        appleKeys.scheduleRefresh(refresher, retryDelay);
+        googleKeys.scheduleRefresh(refresher, retryDelay);
+    }
+
+    @PreDestroy
+    void stop() {
+        refresher.shutdownNow();
+    }
+
+    public Claims verifyApple(String idToken) {
+        Claims claims = appleParser.parseSignedClaims(idToken).getPayload();
+        if (!APPLE_ISSUER.equals(claims.getIssuer())) {
+            throw new JwtException("Unexpected Apple issuer " + claims.getIssuer());
+        }
+        return claims;
+    }
+
+    public Claims verifyGoogle(String idToken) {
+        Claims claims = googleParser.parseSignedClaims(idToken).getPayload();
+        if (!GOOGLE_ISSUERS.contains(claims.getIssuer())) {
+            throw new JwtException("Unexpected Google issuer " + claims.getIssuer());
+        }
+        return claims;
+    }
+
+    private static JwtParser parser(JwksKeyCache keys, String provider) {
+        return Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        PublicKey key = keys.getKey(header.getKeyId());
+                        if (key == null) {
+                            throw new JwtException("Unknown " + provider + " signing key " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.garbigo.auth.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbigo.auth.http.ProviderHttpClient;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Signing keys of one identity provider, parsed once from its JWKS document into PublicKeys
+// indexed by kid. Refreshed in the background when the response's Cache-Control max-age runs
+// out; a kid that is not cached (the provider rotated keys) triggers one synchronous refetch,
+// at most once per min-refetch interval so forged kids cannot hammer the provider.
+public class JwksKeyCache {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final String provider;
+    private final URI jwksUri;
+    private final ProviderHttpClient httpClient;
+    private final Duration minRefetchInterval;
+    private final Duration defaultMaxAge;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ReentrantLock fetchLock = new ReentrantLock();
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private volatile long lastFetchAttemptMillis;
+    private volatile Duration maxAge;
+
+    public JwksKeyCache(URI jwksUri, ProviderHttpClient httpClient, Duration minRefetchInterval, Duration defaultMaxAge) {
+        this.provider = httpClient.provider();
+        this.jwksUri = jwksUri;
+        this.httpClient = httpClient;
+        this.minRefetchInterval = minRefetchInterval;
+        this.defaultMaxAge = defaultMaxAge;
+        this.maxAge = defaultMaxAge;
+    }
+
+    // Null if the provider does not publish this kid even after a refetch
+    public PublicKey getKey(String kid) {
+        if (kid == null) {
+            return null;
+        }
+        PublicKey key = keys.get(kid);
+        if (key != null) {
+            return key;
+        }
+        fetchLock.lock();
+        try {
+            // Another thread may have refetched while this one waited
+            key = keys.get(kid);
+            if (key != null || System.currentTimeMillis() - lastFetchAttemptMillis < minRefetchInterval.toMillis()) {
+                return key;
+            }
+            fetch();
+            return keys.get(kid);
+        } catch (IOException | RuntimeException e) {
+            System.err.println(provider + " JWKS refetch failed: " + e.getMessage());
+            return null;
+        } finally {
+            fetchLock.unlock();
+        }
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    // Fetches now and keeps refreshing in the background. Failed refreshes keep the current
+    // keys and are retried after retryDelay.
+    public void scheduleRefresh(ScheduledExecutorService scheduler, Duration retryDelay) {
+        scheduler.execute(() -> {
+            Duration next;
+            fetchLock.lock();
+            try {
+                fetch();
+                // Refresh a little before the provider's max-age so lookups never wait on it
+                next = maxAge.minus(maxAge.dividedBy(10));
+            } catch (Exception e) {
+                System.err.println(provider + " JWKS refresh failed: " + e.getMessage());
+                next = retryDelay;
+            } finally {
+                fetchLock.unlock();
+            }
+            if (!scheduler.isShutdown()) {
+                scheduler.schedule(() -> scheduleRefresh(scheduler, retryDelay),
+                        Math.max(next.toMillis(), minRefetchInterval.toMillis()), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    // Caller holds fetchLock
+    void fetch() throws IOException {
+        lastFetchAttemptMillis = System.currentTimeMillis();
+        HttpResponse<byte[]> response = httpClient.get(jwksUri);
+        if (response.statusCode() != 200) {
+            throw new IOException(jwksUri + " returned HTTP " + response.statusCode());
+        }
+
+        Map<String, PublicKey> parsed = parse(objectMapper.readTree(response.body()));
+        if (parsed.isEmpty()) {
+            throw new IOException(jwksUri + " returned no usable RSA signing keys");
+        }
+        keys = Map.copyOf(parsed);
+        maxAge = response.headers().firstValue("Cache-Control")
+                .map(MAX_AGE::matcher)
+                .filter(Matcher::find)
+                .map(m -> Duration.ofSeconds(Long.parseLong(m.group(1))))
+                .orElse(defaultMaxAge);
+    }
+
+    private Map<String, PublicKey> parse(JsonNode jwks) throws IOException {
+        Map<String, PublicKey> parsed = new HashMap<>();
+        KeyFactory rsa;
+        try {
+            rsa = KeyFactory.getInstance("RSA");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("RSA not available", e);
+        }
+        for (JsonNode jwk : jwks.path("keys")) {
+            String kid = jwk.path("kid").asText(null);
+            String use = jwk.path("use").asText("sig");
+            if (kid == null || !"RSA".equals(jwk.path("kty").asText()) || !"sig".equals(use)) {
+                continue;
+            }
+            try {
+                BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("n").asText()));
+                BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("e").asText()));
+                parsed.put(kid, rsa.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+            } catch (IllegalArgumentException | GeneralSecurityException e) {
+                // One malformed key must not take the others down
+                System.err.println("Skipping " + provider + " JWKS key " + kid + ": " + e.getMessage());
+            }
+        }
+        return parsed;
+    }
+}
@@ -1,9 +1,13 @@
 package com.garbigo.auth.security;
 
+import com.garbigo.auth.model.Role;
+import com.garbigo.auth.model.User;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,10 +22,21 @@ public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsServiceImpl userDetailsService;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final VerifiedTokenCache tokenCache;
 
-    public JwtFilter(JwtUtil jwtUtil, UserDetailsServiceImpl userDetailsService) {
+    // When enabled, the principal is built from token claims and Mongo is never queried
+    @Value("${jwt.stateless:true}")
+    private boolean stateless;
+
+    public JwtFilter(JwtUtil jwtUtil,
+                     UserDetailsServiceImpl userDetailsService,
+                     TokenRevocationRegistry revocationRegistry,
+                     VerifiedTokenCache tokenCache) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.revocationRegistry = revocationRegistry;
+        this.tokenCache = tokenCache;
     }
 
     @Override
@@ -29,20 +44,58 @@ public class JwtFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
             String token = authHeader.substring(7);
-            String email = jwtUtil.extractUsername(token);
-
-            if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-                if (jwtUtil.validateToken(token, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, token, userDetails.getAuthorities());
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+            UserDetails userDetails = authenticate(token);
+
+            if (userDetails != null) {
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        userDetails, token, userDetails.getAuthorities());
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         }
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private UserDetails authenticate(String token) {
+        VerifiedToken verified = tokenCache.get(token);
+        if (verified == null) {
+            try {
+                verified = jwtUtil.verify(token);
+            } catch (JwtException | IllegalArgumentException e) {
+                return null;
+            }
+            tokenCache.put(token, verified);
+        }
+
+        // Tokens issued before claim snapshots existed still need the user document
+        if (!stateless || !verified.hasSnapshot()) {
+            return loadFromDatabase(verified);
+        }
+        return loadFromClaims(verified);
+    }
+
+    private UserDetails loadFromDatabase(VerifiedToken verified) {
+        if (verified.subject() == null) {
+            return null;
+        }
+        return userDetailsService.loadUserByUsername(verified.subject());
+    }
+
+    private UserDetails loadFromClaims(VerifiedToken verified) {
+        if (!verified.active() || revocationRegistry.isRevoked(verified.userId(), verified.version())) {
+            return null;
+        }
+
+        User user = new User();
+        user.setId(verified.userId());
+        user.setEmail(verified.subject());
+        user.setRole(Role.valueOf(verified.role()));
+        user.setVerified(verified.verified());
+        user.setActive(true);
+        user.setTokenVersion(verified.version());
+        return user;
+    }
+}
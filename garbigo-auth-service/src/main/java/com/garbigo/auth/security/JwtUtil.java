@@ -1,67 +1,93 @@
 package com.garbigo.auth.security;
 
+import com.garbigo.auth.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
-import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    // Snapshot claims used by JwtFilter to build the principal without a database lookup
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_VERIFIED = "verified";
+    public static final String CLAIM_ACTIVE = "active";
+    public static final String CLAIM_VERSION = "ver";
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private long expiration;
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    // Built once; JwtParser is immutable and safe to share between request threads
+    private SecretKey signInKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secret);
+        signInKey = Keys.hmacShaKeyFor(keyBytes);
+        parser = Jwts.parser()
+                .verifyWith(signInKey)
+                .build();
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    // Verifies signature and expiry once; throws JwtException for invalid or expired tokens
+    public VerifiedToken verify(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        Integer version = claims.get(CLAIM_VERSION, Integer.class);
+        Date expiresAt = claims.getExpiration();
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.get(CLAIM_USER_ID, String.class),
+                claims.get(CLAIM_ROLE, String.class),
+                Boolean.TRUE.equals(claims.get(CLAIM_VERIFIED, Boolean.class)),
+                Boolean.TRUE.equals(claims.get(CLAIM_ACTIVE, Boolean.class)),
+                version != null ? version : 0,
+                expiresAt != null ? expiresAt.toInstant() : null);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey())  // Now correctly typed as SecretKey
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    // Access token lifetime, reported to clients as expiresIn
+    public long getExpirationSeconds() {
+        return expiration;
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);  // Returns SecretKey directly
+    public String extractUsername(String token) {
+        return verify(token).subject();
     }
 
     public String generateToken(UserDetails userDetails) {
-        return Jwts.builder()
+        long now = System.currentTimeMillis();
+        JwtBuilder builder = Jwts.builder()
                 .subject(userDetails.getUsername())
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration * 1000))
-                .signWith(getSignInKey())
-                .compact();
-    }
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration * 1000));
 
-    public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-    }
+        if (userDetails instanceof User user) {
+            builder.claim(CLAIM_USER_ID, user.getId())
+                    .claim(CLAIM_ROLE, user.getRole().name())
+                    .claim(CLAIM_VERIFIED, user.isVerified())
+                    .claim(CLAIM_ACTIVE, user.isActive())
+                    .claim(CLAIM_VERSION, user.getTokenVersion());
+        }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return builder.signWith(signInKey).compact();
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean validateToken(String token, UserDetails userDetails) {
+        // Expiry is enforced by the parser, so only the subject needs comparing
+        return verify(token).subject().equals(userDetails.getUsername());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package com.garbigo.auth.security;
+
+import jakarta.annotation.PostConstruct;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Minimum accepted token version per user. Revocations are persisted in Redis and
+// broadcast to every node, so the per-request check is a local map lookup. An entry only
+// matters while access tokens issued before it can still be valid, so both copies expire
+// after the access token lifetime (plus clock skew) instead of growing forever.
+@Component
+public class TokenRevocationRegistry {
+
+    private static final String VERSIONS_MAP = "jwt_token_versions";
+    private static final String UPDATES_TOPIC = "jwt_token_versions_updates";
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private record Revocation(int minimumVersion, long expiresAtMillis) {}
+
+    private final RMapCache<String, Integer> versions;
+    private final RTopic updates;
+    private final long retentionMillis;
+    private final Map<String, Revocation> minimumVersions = new ConcurrentHashMap<>();
+
+    public TokenRevocationRegistry(RedissonClient redissonClient,
+                                   @Value("${jwt.expiration}") long accessTokenSeconds) {
+        this.versions = redissonClient.getMapCache(VERSIONS_MAP);
+        this.updates = redissonClient.getTopic(UPDATES_TOPIC);
+        this.retentionMillis = TimeUnit.SECONDS.toMillis(accessTokenSeconds) + CLOCK_SKEW.toMillis();
+    }
+
+    @PostConstruct
+    void init() {
+        // Subscribe first so no revocation published during the initial load is missed
+        updates.addListener(String.class, (channel, message) -> apply(message));
+        versions.readAllMap().forEach((userId, version) -> raise(userId, version, retentionMillis));
+    }
+
+    public void revoke(String userId, int minimumVersion) {
+        versions.fastPut(userId, minimumVersion, retentionMillis, TimeUnit.MILLISECONDS);
+        raise(userId, minimumVersion, retentionMillis);
+        updates.publish(userId + ":" + minimumVersion);
+    }
+
+    public boolean isRevoked(String userId, int tokenVersion) {
+        Revocation revocation = minimumVersions.get(userId);
+        return revocation != null && tokenVersion < revocation.minimumVersion()
+                && revocation.expiresAtMillis() > System.currentTimeMillis();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.prune-interval-millis:60000}")
+    public void pruneExpired() {
+        long now = System.currentTimeMillis();
+        minimumVersions.values().removeIf(revocation -> revocation.expiresAtMillis() <= now);
+    }
+
+    private void apply(String message) {
+        int separator = message.lastIndexOf(':');
+        if (separator > 0) {
+            raise(message.substring(0, separator), Integer.parseInt(message.substring(separator + 1)), retentionMillis);
+        }
+    }
+
+    private void raise(String userId, Integer minimumVersion, long retainMillis) {
+        Revocation revocation = new Revocation(minimumVersion, System.currentTimeMillis() + retainMillis);
+        minimumVersions.merge(userId, revocation, (a, b) -> new Revocation(
+                Math.max(a.minimumVersion(), b.minimumVersion()), Math.max(a.expiresAtMillis(), b.expiresAtMillis())));
+    }
+}
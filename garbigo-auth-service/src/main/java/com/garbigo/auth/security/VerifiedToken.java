@@ -0,0 +1,18 @@
+package com.garbigo.auth.security;
+
+import java.time.Instant;
+
+// Immutable result of a single signature-verified parse of a JWT
+public record VerifiedToken(String subject,
+                            String userId,
+                            String role,
+                            boolean verified,
+                            boolean active,
+                            int version,
+                            Instant expiresAt) {
+
+    // Tokens issued before claim snapshots existed only carry the subject
+    public boolean hasSnapshot() {
+        return userId != null && role != null;
+    }
+}
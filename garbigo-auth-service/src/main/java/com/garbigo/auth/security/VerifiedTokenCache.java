@@ -0,0 +1,163 @@
+package com.garbigo.auth.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bounded LRU of already-verified tokens keyed by their SHA-256 digest, so hot tokens skip HMAC verification.
+// Entries never outlive the token's own expiry or the configured max TTL.
+@Component
+public class VerifiedTokenCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final boolean enabled;
+    private final long maxTtlMillis;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter invalidations;
+
+    public VerifiedTokenCache(MeterRegistry meterRegistry,
+                              @Value("${jwt.cache.enabled:true}") boolean enabled,
+                              @Value("${jwt.cache.max-entries:10000}") int maxEntries,
+                              @Value("${jwt.cache.max-ttl-seconds:300}") long maxTtlSeconds) {
+        this.enabled = enabled;
+        this.maxTtlMillis = maxTtlSeconds * 1000;
+        int perSegment = Math.max(1, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+
+        this.hits = meterRegistry.counter("auth.jwt.cache.hits");
+        this.misses = meterRegistry.counter("auth.jwt.cache.misses");
+        this.sizeEvictions = meterRegistry.counter("auth.jwt.cache.evictions", "cause", "size");
+        this.expiredEvictions = meterRegistry.counter("auth.jwt.cache.evictions", "cause", "expired");
+        this.invalidations = meterRegistry.counter("auth.jwt.cache.evictions", "cause", "invalidated");
+        Gauge.builder("auth.jwt.cache.size", this, VerifiedTokenCache::size).register(meterRegistry);
+    }
+
+    public VerifiedToken get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        TokenKey key = TokenKey.of(token);
+        Segment segment = segmentFor(key);
+        long now = System.currentTimeMillis();
+
+        synchronized (segment) {
+            CachedToken entry = segment.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.expiresAtMillis() <= now) {
+                segment.remove(key);
+                expiredEvictions.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.token();
+        }
+    }
+
+    public void put(String token, VerifiedToken verified) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expiresAt = now + maxTtlMillis;
+        if (verified.expiresAt() != null) {
+            expiresAt = Math.min(expiresAt, verified.expiresAt().toEpochMilli());
+        }
+        if (expiresAt <= now) {
+            return;
+        }
+
+        TokenKey key = TokenKey.of(token);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, new CachedToken(verified, expiresAt));
+        }
+    }
+
+    // Drops every cached token of a user, e.g. after deactivation or archiving
+    public void invalidateUser(String userId) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.values().removeIf(entry -> {
+                    boolean match = userId.equals(entry.token().userId());
+                    if (match) {
+                        invalidations.increment();
+                    }
+                    return match;
+                });
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(TokenKey key) {
+        return segments[key.hashCode() & (SEGMENTS - 1)];
+    }
+
+    private record CachedToken(VerifiedToken token, long expiresAtMillis) {}
+
+    // 256-bit digest held as four longs instead of the full token string
+    private record TokenKey(long a, long b, long c, long d) {
+
+        static TokenKey of(String token) {
+            ByteBuffer digest = ByteBuffer.wrap(sha256(token));
+            return new TokenKey(digest.getLong(), digest.getLong(), digest.getLong(), digest.getLong());
+        }
+
+        private static byte[] sha256(String token) {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<TokenKey, CachedToken> {
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TokenKey, CachedToken> eldest) {
+            if (size() > capacity) {
+                sizeEvictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -3,19 +3,19 @@ package com.garbigo.auth.service;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import com.garbigo.auth.dto.*;
+import com.garbigo.auth.event.UserCreatedEvent;
 import com.garbigo.auth.exception.CustomException;
+import com.garbigo.auth.exception.PasswordHashingBusyException;
 import com.garbigo.auth.model.Role;
-import com.garbigo.auth.model.Token;
+import com.garbigo.auth.model.TokenType;
 import com.garbigo.auth.model.User;
-import com.garbigo.auth.repository.TokenRepository;
 import com.garbigo.auth.repository.UserRepository;
 import com.garbigo.auth.security.JwtUtil;
-import com.garbigo.auth.util.RateLimiter;
+import com.garbigo.auth.security.TokenRevocationRegistry;
+import com.garbigo.auth.security.VerifiedTokenCache;
 
-import jakarta.mail.MessagingException;
-
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -25,51 +25,57 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 
 @Service
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final TokenRepository tokenRepository;
+    private final TokenService tokenService;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
-    private final EmailService emailService;
+    private final MailOutboxService mailOutboxService;
     private final Cloudinary cloudinary;
-    private final RabbitTemplate rabbitTemplate;
-    private final RateLimiter rateLimiter;
+    private final EventOutboxService eventOutboxService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final VerifiedTokenCache tokenCache;
+
+    @Value("${tokens.verification-validity:24h}")
+    private Duration verificationValidity;
 
-    @Value("${rabbitmq.queue.user-created}")
-    private String userCreatedQueue;
+    @Value("${tokens.reset-validity:1h}")
+    private Duration resetValidity;
 
     public AuthService(UserRepository userRepository,
-                       TokenRepository tokenRepository,
+                       TokenService tokenService,
                        PasswordEncoder passwordEncoder,
                        AuthenticationManager authenticationManager,
                        JwtUtil jwtUtil,
-                       EmailService emailService,
+                       MailOutboxService mailOutboxService,
                        Cloudinary cloudinary,
-                       RabbitTemplate rabbitTemplate,
-                       RateLimiter rateLimiter) {
+                       EventOutboxService eventOutboxService,
+                       RefreshTokenService refreshTokenService,
+                       TokenRevocationRegistry revocationRegistry,
+                       VerifiedTokenCache tokenCache) {
         this.userRepository = userRepository;
-        this.tokenRepository = tokenRepository;
+        this.tokenService = tokenService;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
-        this.emailService = emailService;
+        this.mailOutboxService = mailOutboxService;
         this.cloudinary = cloudinary;
-        this.rabbitTemplate = rabbitTemplate;
-        this.rateLimiter = rateLimiter;
+        this.eventOutboxService = eventOutboxService;
+        this.refreshTokenService = refreshTokenService;
+        this.revocationRegistry = revocationRegistry;
+        this.tokenCache = tokenCache;
     }
 
     @Transactional
     public AuthResponse signup(SignupRequest request) {
         try {
-            rateLimiter.checkRateLimit();
-
             if (userRepository.findByEmail(request.getEmail()).isPresent()) {
                 throw new CustomException("Email already in use");
             }
@@ -87,18 +93,18 @@ public class AuthService {
 
             user = userRepository.save(user);
 
-            String verifyToken = UUID.randomUUID().toString();
-            Token token = new Token();
-            token.setUserId(user.getId());
-            token.setToken(verifyToken);
-            token.setType("VERIFICATION");
-            token.setExpiry(System.currentTimeMillis() + 24 * 60 * 60 * 1000);
-            tokenRepository.save(token);
+            String verifyToken = tokenService.issue(user.getId(), TokenType.VERIFICATION, verificationValidity);
 
-            sendEmailAndRabbitMQAsync(user, verifyToken);
+            // Durable: delivered by the outbox workers even if SMTP is down right now
+            mailOutboxService.enqueue(user.getEmail(), EmailService.VERIFICATION,
+                    LocaleContextHolder.getLocale(), Map.of("token", verifyToken));
+            // Committed with the user when transactions are enabled; published by the relay
+            eventOutboxService.enqueue(UserCreatedEvent.TYPE, user.getId(), UserCreatedEvent.from(user));
 
             return buildAuthResponse(user);
             
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("SIGNUP ERROR: " + e.getMessage());
             e.printStackTrace();
@@ -114,52 +120,23 @@ public class AuthService {
             throw new CustomException("Account already verified");
         }
         
-        String verifyToken = UUID.randomUUID().toString();
-        Token token = new Token();
-        token.setUserId(user.getId());
-        token.setToken(verifyToken);
-        token.setType("VERIFICATION");
-        token.setExpiry(System.currentTimeMillis() + 24 * 60 * 60 * 1000);
-        tokenRepository.save(token);
-        
-        CompletableFuture.runAsync(() -> {
-            try {
-                emailService.sendVerificationEmail(user.getEmail(), verifyToken);
-                System.out.println("Resent verification email to: " + user.getEmail());
-            } catch (MessagingException e) {
-                System.err.println("Failed to resend verification email: " + e.getMessage());
-            }
-        });
-    }
+        // Replaces any earlier verification token, so only the newest link works
+        String verifyToken = tokenService.issue(user.getId(), TokenType.VERIFICATION, verificationValidity);
 
-    private void sendEmailAndRabbitMQAsync(User user, String verifyToken) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                emailService.sendVerificationEmail(user.getEmail(), verifyToken);
-                System.out.println("Verification email sent to: " + user.getEmail());
-            } catch (Exception e) {
-                System.err.println("Failed to send verification email: " + e.getMessage());
-            }
-            
-            try {
-                rabbitTemplate.convertAndSend(userCreatedQueue, user);
-                System.out.println("RabbitMQ message sent for user: " + user.getId());
-            } catch (Exception e) {
-                System.err.println("Failed to send RabbitMQ message: " + e.getMessage());
-            }
-        });
+        mailOutboxService.enqueue(user.getEmail(), EmailService.VERIFICATION,
+                LocaleContextHolder.getLocale(), Map.of("token", verifyToken));
     }
 
     public AuthResponse signin(AuthRequest request) {
         try {
-            rateLimiter.checkRateLimit();
-
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
 
             User user = (User) authentication.getPrincipal();
             return buildAuthResponse(user);
             
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("SIGNIN ERROR: " + e.getMessage());
             e.printStackTrace();
@@ -167,21 +144,38 @@ public class AuthService {
         }
     }
 
+    // Access tokens are short-lived and never checked against the database; this is where account
+    // changes catch up with a session, once per access token lifetime
+    public AuthResponse refresh(RefreshTokenRequest request) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
+
+        User user = userRepository.findById(rotation.userId()).orElse(null);
+        if (user == null || !user.isActive() || user.isArchived()
+                || user.getTokenVersion() != rotation.tokenVersion()) {
+            // Revoked since the family was issued, e.g. deactivated or archived
+            refreshTokenService.revokeFamily(rotation.refreshToken());
+            throw new CustomException("Invalid or expired refresh token");
+        }
+        return buildAuthResponse(user, rotation.refreshToken());
+    }
+
+    // Ends the session the refresh token belongs to; its access token runs out on its own
+    public void logout(RefreshTokenRequest request) {
+        refreshTokenService.revokeFamily(request.getRefreshToken());
+    }
+
     public void verifyAccount(String tokenStr) {
         try {
-            Token token = tokenRepository.findByToken(tokenStr)
-                    .orElseThrow(() -> new CustomException("Invalid verification token"));
+            String userId = tokenService.consume(tokenStr, TokenType.VERIFICATION);
 
-            if (token.getExpiry() < System.currentTimeMillis()) {
-                throw new CustomException("Verification token expired");
-            }
-
-            User user = userRepository.findById(token.getUserId())
+            User user = userRepository.findById(userId)
                     .orElseThrow(() -> new CustomException("User not found"));
 
             user.setVerified(true);
             userRepository.save(user);
-            tokenRepository.delete(token);
+
+            mailOutboxService.enqueue(user.getEmail(), EmailService.WELCOME, LocaleContextHolder.getLocale(),
+                    Map.of("firstName", user.getFirstName() != null ? user.getFirstName() : ""));
         } catch (Exception e) {
             System.err.println("VERIFY ERROR: " + e.getMessage());
             e.printStackTrace();
@@ -191,26 +185,13 @@ public class AuthService {
 
     public void requestPasswordReset(String email) {
         try {
-            rateLimiter.checkRateLimit();
-
             User user = userRepository.findByEmail(email)
                     .orElseThrow(() -> new CustomException("User not found"));
 
-            String resetToken = UUID.randomUUID().toString();
-            Token token = new Token();
-            token.setUserId(user.getId());
-            token.setToken(resetToken);
-            token.setType("RESET");
-            token.setExpiry(System.currentTimeMillis() + 60 * 60 * 1000);
-            tokenRepository.save(token);
-
-            CompletableFuture.runAsync(() -> {
-                try {
-                    emailService.sendResetPasswordEmail(email, resetToken);
-                } catch (MessagingException e) {
-                    System.err.println("Failed to send reset email: " + e.getMessage());
-                }
-            });
+            String resetToken = tokenService.issue(user.getId(), TokenType.RESET, resetValidity);
+
+            mailOutboxService.enqueue(email, EmailService.RESET_PASSWORD,
+                    LocaleContextHolder.getLocale(), Map.of("token", resetToken));
         } catch (Exception e) {
             System.err.println("RESET PASSWORD ERROR: " + e.getMessage());
             e.printStackTrace();
@@ -220,19 +201,17 @@ public class AuthService {
 
     public void resetPassword(String tokenStr, String newPassword) {
         try {
-            Token token = tokenRepository.findByToken(tokenStr)
-                    .orElseThrow(() -> new CustomException("Invalid reset token"));
-
-            if (token.getExpiry() < System.currentTimeMillis()) {
-                throw new CustomException("Reset token expired");
-            }
+            // Hash first: if hashing is saturated the reset link stays usable for a retry
+            String encodedPassword = passwordEncoder.encode(newPassword);
+            String userId = tokenService.consume(tokenStr, TokenType.RESET);
 
-            User user = userRepository.findById(token.getUserId())
+            User user = userRepository.findById(userId)
                     .orElseThrow(() -> new CustomException("User not found"));
 
-            user.setPassword(passwordEncoder.encode(newPassword));
-            userRepository.save(user);
-            tokenRepository.delete(token);
+            user.setPassword(encodedPassword);
+            revokeSessions(user);
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("RESET PASSWORD CONFIRM ERROR: " + e.getMessage());
             e.printStackTrace();
@@ -253,7 +232,9 @@ public class AuthService {
             }
 
             user.setPassword(passwordEncoder.encode(request.getNewPassword()));
-            userRepository.save(user);
+            revokeSessions(user);
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("CHANGE PASSWORD ERROR: " + e.getMessage());
             e.printStackTrace();
@@ -261,17 +242,35 @@ public class AuthService {
         }
     }
 
+    // Saves the user with a bumped token version: every outstanding access token and refresh
+    // token family was issued for the old password and stops working
+    private void revokeSessions(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        userRepository.save(user);
+        revocationRegistry.revoke(user.getId(), user.getTokenVersion());
+        tokenCache.invalidateUser(user.getId());
+    }
+
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new CustomException("No authenticated user");
         }
-        return (User) authentication.getPrincipal();
+        // The principal may be a claims snapshot, so load the full document before modifying it
+        User principal = (User) authentication.getPrincipal();
+        return userRepository.findById(principal.getId())
+                .orElseThrow(() -> new CustomException("User not found"));
     }
 
     private AuthResponse buildAuthResponse(User user) {
+        return buildAuthResponse(user, refreshTokenService.issue(user));
+    }
+
+    private AuthResponse buildAuthResponse(User user, String refreshToken) {
         AuthResponse response = new AuthResponse();
         response.setToken(jwtUtil.generateToken(user));
+        response.setRefreshToken(refreshToken);
+        response.setExpiresIn(jwtUtil.getExpirationSeconds());
         response.setRole(user.getRole().name());
         response.setVerified(user.isVerified());
         
@@ -0,0 +1,272 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.dto.CollectorPosition;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pushes collector position changes to SSE subscribers. Ingestion marks collectors dirty; every
+// tick the dirty set is read once from the registry and merged into each matching subscriber's
+// pending map, which only ever holds the latest position per collector. Sends run on virtual
+// threads, one in flight per subscriber, so a slow client delays only itself and never builds
+// a backlog larger than the number of collectors it watches.
+@Service
+public class CollectorPositionBroadcaster {
+
+    private final CollectorPositionRegistry positionRegistry;
+    private final int maxSubscribers;
+    private final long tickMillis;
+    private final long heartbeatMillis;
+    private final long timeoutMillis;
+
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Subscriber>> byCollector = new ConcurrentHashMap<>();
+    private final Set<Subscriber> byArea = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter sent;
+    private final Counter coalesced;
+    private final Counter disconnected;
+
+    private volatile boolean running;
+    private Thread ticker;
+
+    public CollectorPositionBroadcaster(CollectorPositionRegistry positionRegistry,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${live-location.stream.max-subscribers:10000}") int maxSubscribers,
+                                        @Value("${live-location.stream.tick-millis:500}") long tickMillis,
+                                        @Value("${live-location.stream.heartbeat-seconds:20}") long heartbeatSeconds,
+                                        @Value("${live-location.stream.timeout-minutes:30}") long timeoutMinutes) {
+        this.positionRegistry = positionRegistry;
+        this.maxSubscribers = maxSubscribers;
+        this.tickMillis = tickMillis;
+        this.heartbeatMillis = heartbeatSeconds * 1000;
+        this.timeoutMillis = timeoutMinutes * 60_000;
+
+        this.sent = meterRegistry.counter("auth.live-location.stream.sent");
+        this.coalesced = meterRegistry.counter("auth.live-location.stream.coalesced");
+        this.disconnected = meterRegistry.counter("auth.live-location.stream.disconnected");
+        Gauge.builder("auth.live-location.stream.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        ticker = new Thread(this::tickLoop, "live-location-broadcaster");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        ticker.interrupt();
+        senders.shutdownNow();
+    }
+
+    // Called on every accepted ping; repeated pings within a tick collapse into one entry
+    public void markDirty(String userId) {
+        dirty.add(userId);
+    }
+
+    // Streams collectors in collectorIds, or inside the bounding box, or everything if neither is given.
+    // Returns null when the node is at its subscriber limit.
+    public SseEmitter subscribe(Set<String> collectorIds, double[] boundingBox) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, collectorIds, boundingBox);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        if (subscriber.collectorIds != null) {
+            for (String id : subscriber.collectorIds) {
+                byCollector.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            }
+        } else {
+            byArea.add(subscriber);
+        }
+
+        // Initial snapshot so the map is populated before the first change arrives
+        if (subscriber.collectorIds != null) {
+            for (String id : subscriber.collectorIds) {
+                CollectorPosition position = positionRegistry.get(id);
+                if (position != null) {
+                    subscriber.offer(position);
+                }
+            }
+        } else {
+            for (CollectorPosition position : positionRegistry.active()) {
+                if (subscriber.matches(position)) {
+                    subscriber.offer(position);
+                }
+            }
+        }
+        subscriber.schedule();
+        return emitter;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        if (subscriber.collectorIds != null) {
+            for (String id : subscriber.collectorIds) {
+                byCollector.computeIfPresent(id, (k, subscribers) -> {
+                    subscribers.remove(subscriber);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            }
+        } else {
+            byArea.remove(subscriber);
+        }
+    }
+
+    private void tickLoop() {
+        while (running) {
+            try {
+                Thread.sleep(tickMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                tick();
+            } catch (Exception e) {
+                System.err.println("Collector position broadcast failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void tick() {
+        List<CollectorPosition> changed = new ArrayList<>();
+        for (String userId : dirty) {
+            dirty.remove(userId);
+            CollectorPosition position = positionRegistry.get(userId);
+            if (position != null) {
+                changed.add(position);
+            }
+        }
+
+        for (CollectorPosition position : changed) {
+            Set<Subscriber> watchers = byCollector.get(position.getUserId());
+            if (watchers != null) {
+                for (Subscriber subscriber : watchers) {
+                    subscriber.offer(position);
+                }
+            }
+        }
+        if (!changed.isEmpty()) {
+            for (Subscriber subscriber : byArea) {
+                for (CollectorPosition position : changed) {
+                    if (subscriber.matches(position)) {
+                        subscriber.offer(position);
+                    }
+                }
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        for (Set<Subscriber> watchers : byCollector.values()) {
+            for (Subscriber subscriber : watchers) {
+                subscriber.flushOrHeartbeat(now);
+            }
+        }
+        for (Subscriber subscriber : byArea) {
+            subscriber.flushOrHeartbeat(now);
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> collectorIds;
+        private final double[] boundingBox; // minLat, minLon, maxLat, maxLon
+        private final Map<String, CollectorPosition> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile long lastSentMillis = System.currentTimeMillis();
+
+        Subscriber(SseEmitter emitter, Set<String> collectorIds, double[] boundingBox) {
+            this.emitter = emitter;
+            this.collectorIds = collectorIds != null && !collectorIds.isEmpty() ? Set.copyOf(collectorIds) : null;
+            this.boundingBox = boundingBox;
+        }
+
+        boolean matches(CollectorPosition position) {
+            return boundingBox == null
+                    || (position.getLatitude() >= boundingBox[0] && position.getLatitude() <= boundingBox[2]
+                    && position.getLongitude() >= boundingBox[1] && position.getLongitude() <= boundingBox[3]);
+        }
+
+        void offer(CollectorPosition position) {
+            if (pending.put(position.getUserId(), position) != null) {
+                coalesced.increment();
+            }
+        }
+
+        void flushOrHeartbeat(long now) {
+            if (!pending.isEmpty() || now - lastSentMillis >= heartbeatMillis) {
+                schedule();
+            }
+        }
+
+        // At most one send in flight; updates arriving meanwhile are picked up by the next tick
+        void schedule() {
+            if (closed.get() || !sending.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senders.execute(this::send);
+            } catch (RuntimeException e) {
+                sending.set(false);
+            }
+        }
+
+        private void send() {
+            try {
+                List<CollectorPosition> batch = new ArrayList<>(pending.size());
+                for (String userId : pending.keySet()) {
+                    CollectorPosition position = pending.remove(userId);
+                    if (position != null) {
+                        batch.add(position);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                } else {
+                    emitter.send(SseEmitter.event().name("positions").data(batch, MediaType.APPLICATION_JSON));
+                    sent.increment(batch.size());
+                }
+                lastSentMillis = System.currentTimeMillis();
+            } catch (IOException | IllegalStateException e) {
+                // The container completes the emitter itself after a failed write
+                disconnected.increment();
+                unsubscribe(this);
+            } finally {
+                sending.set(false);
+            }
+        }
+    }
+}
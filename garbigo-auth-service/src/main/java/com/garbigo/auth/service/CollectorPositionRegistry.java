@@ -0,0 +1,278 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.dto.CollectorPosition;
+import com.garbigo.auth.dto.NearbyCollector;
+import com.garbigo.auth.exception.CustomException;
+import com.garbigo.auth.util.GeoGrid;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Latest known position per collector, kept in flat primitive arrays so a ping allocates nothing.
+// Each slot is [sequence, latitude bits, longitude bits, timestamp millis, received millis]; readers use the
+// sequence as a seqlock and writers serialize on a lock stripe. A GeoGrid over the slots
+// answers radius and nearest-neighbour queries. The registry is node-local: it only knows
+// collectors whose pings reached this instance, so with several instances collector pings
+// must be routed to one node (or queries accepted as partial).
+@Component
+public class CollectorPositionRegistry {
+
+    private static final int STRIDE = 5;
+    // Client clocks are only trusted this far from the server's; beyond it the receive time is used
+    private static final long MAX_CLOCK_SKEW_MILLIS = 30_000;
+    private static final int LOCK_STRIPES = 64;
+
+    private final int capacity;
+    private final long idleTimeoutMillis;
+    private final AtomicLongArray slots;
+    private final AtomicReferenceArray<String> owners;
+    private final Map<String, Integer> index = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // Spatial index; cellOfSlot is guarded by the slot's lock stripe
+    private final GeoGrid grid;
+    private final long[] cellOfSlot;
+    private final double maxSearchRadiusKm;
+    private final int maxResults;
+
+    // Slot allocation, guarded by allocationLock
+    private final Object allocationLock = new Object();
+    private final int[] freeSlots;
+    private int freeCount;
+    private int nextSlot;
+
+    private final Counter dropped;
+
+    public CollectorPositionRegistry(MeterRegistry meterRegistry,
+                                     @Value("${live-location.registry.capacity:16384}") int capacity,
+                                     @Value("${live-location.registry.idle-timeout-seconds:900}") long idleTimeoutSeconds,
+                                     @Value("${live-location.registry.grid-cell-degrees:0.01}") double gridCellDegrees,
+                                     @Value("${live-location.registry.max-search-radius-km:100}") double maxSearchRadiusKm,
+                                     @Value("${live-location.registry.max-results:200}") int maxResults) {
+        this.capacity = capacity;
+        this.idleTimeoutMillis = idleTimeoutSeconds * 1000;
+        this.slots = new AtomicLongArray(capacity * STRIDE);
+        this.owners = new AtomicReferenceArray<>(capacity);
+        this.freeSlots = new int[capacity];
+        this.grid = new GeoGrid(gridCellDegrees);
+        this.cellOfSlot = new long[capacity];
+        this.maxSearchRadiusKm = maxSearchRadiusKm;
+        this.maxResults = maxResults;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+
+        this.dropped = meterRegistry.counter("auth.live-location.registry.dropped");
+        Gauge.builder("auth.live-location.registry.size", index, Map::size).register(meterRegistry);
+    }
+
+    public void update(String userId, double latitude, double longitude, long timestampMillis) {
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            dropped.increment();
+            return;
+        }
+        // A ping stamped far in the future would otherwise make every later one look stale
+        long receivedMillis = System.currentTimeMillis();
+        update(userId, latitude, longitude,
+                Math.max(receivedMillis - MAX_CLOCK_SKEW_MILLIS, Math.min(timestampMillis, receivedMillis + MAX_CLOCK_SKEW_MILLIS)),
+                receivedMillis);
+    }
+
+    private void update(String userId, double latitude, double longitude, long timestampMillis, long receivedMillis) {
+        Integer slot = index.get(userId);
+        if (slot == null) {
+            slot = allocate(userId, latitude, longitude, timestampMillis, receivedMillis);
+            if (slot == null) {
+                dropped.increment();
+                return;
+            }
+        } else if (!write(slot, userId, latitude, longitude, timestampMillis, receivedMillis, false)) {
+            // Slot was released concurrently; claim a fresh one
+            update(userId, latitude, longitude, timestampMillis, receivedMillis);
+        }
+    }
+
+    public CollectorPosition get(String userId) {
+        Integer slot = index.get(userId);
+        return slot != null ? read(slot, userId) : null;
+    }
+
+    public List<CollectorPosition> active() {
+        List<CollectorPosition> positions = new ArrayList<>(index.size());
+        index.forEach((userId, slot) -> {
+            CollectorPosition position = read(slot, userId);
+            if (position != null) {
+                positions.add(position);
+            }
+        });
+        return positions;
+    }
+
+    // Collectors within radiusKm of the point, closest first. The radius is clamped to the max search
+    // radius and the limit to max-results, so one request cannot walk the whole grid.
+    public List<NearbyCollector> nearby(double latitude, double longitude, double radiusKm, int limit) {
+        validatePoint(latitude, longitude);
+        if (!(radiusKm > 0)) {
+            throw new CustomException("radiusKm must be greater than 0");
+        }
+        if (limit <= 0) {
+            throw new CustomException("limit must be greater than 0");
+        }
+        return search(latitude, longitude, Math.min(radiusKm, maxSearchRadiusKm), Math.min(limit, maxResults));
+    }
+
+    // k closest collectors, widening the search radius until k are found or the max radius is reached
+    public List<NearbyCollector> nearest(double latitude, double longitude, int k) {
+        validatePoint(latitude, longitude);
+        if (k <= 0) {
+            throw new CustomException("k must be greater than 0");
+        }
+        int wanted = Math.min(k, maxResults);
+        double radiusKm = Math.min(grid.cellSizeKm(latitude), maxSearchRadiusKm);
+        while (true) {
+            List<NearbyCollector> candidates = search(latitude, longitude, radiusKm, wanted);
+            if (candidates.size() >= wanted || radiusKm >= maxSearchRadiusKm) {
+                return candidates;
+            }
+            radiusKm = Math.min(radiusKm * 2, maxSearchRadiusKm);
+        }
+    }
+
+    private static void validatePoint(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new CustomException("latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
+    }
+
+    private List<NearbyCollector> search(double latitude, double longitude, double radiusKm, int limit) {
+        List<NearbyCollector> result = new ArrayList<>();
+        grid.forEachWithin(latitude, longitude, radiusKm, slot -> {
+            String userId = owners.get(slot);
+            CollectorPosition position = userId != null ? read(slot, userId) : null;
+            if (position == null) {
+                return;
+            }
+            double distanceKm = GeoGrid.haversineKm(latitude, longitude, position.getLatitude(), position.getLongitude());
+            if (distanceKm <= radiusKm) {
+                result.add(new NearbyCollector(userId, position.getLatitude(), position.getLongitude(),
+                        position.getTimestamp(), distanceKm));
+            }
+        });
+        result.sort(Comparator.comparingDouble(NearbyCollector::getDistanceKm));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    @Scheduled(fixedDelayString = "${live-location.registry.sweep-interval-millis:30000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        index.forEach((userId, slot) -> {
+            // Server receive time, so a skewed client clock neither pins nor prematurely drops an entry
+            if (slots.get(slot * STRIDE + 4) < cutoff) {
+                release(userId, slot);
+            }
+        });
+    }
+
+    private Integer allocate(String userId, double latitude, double longitude, long timestampMillis,
+                             long receivedMillis) {
+        synchronized (allocationLock) {
+            Integer existing = index.get(userId);
+            if (existing != null) {
+                write(existing, userId, latitude, longitude, timestampMillis, receivedMillis, false);
+                return existing;
+            }
+
+            int slot;
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            } else if (nextSlot < capacity) {
+                slot = nextSlot++;
+            } else {
+                return null;
+            }
+
+            // Publish the owner and data before the slot becomes reachable through the index
+            owners.set(slot, userId);
+            write(slot, userId, latitude, longitude, timestampMillis, receivedMillis, true);
+            index.put(userId, slot);
+            return slot;
+        }
+    }
+
+    private void release(String userId, int slot) {
+        synchronized (allocationLock) {
+            if (index.remove(userId, slot)) {
+                synchronized (locks[slot & (LOCK_STRIPES - 1)]) {
+                    grid.remove(cellOfSlot[slot], slot);
+                    owners.set(slot, null);
+                }
+                freeSlots[freeCount++] = slot;
+            }
+        }
+    }
+
+    // Returns false if the slot no longer belongs to userId
+    private boolean write(int slot, String userId, double latitude, double longitude, long timestampMillis,
+                          long receivedMillis, boolean fresh) {
+        int base = slot * STRIDE;
+        synchronized (locks[slot & (LOCK_STRIPES - 1)]) {
+            if (!userId.equals(owners.get(slot))) {
+                return false;
+            }
+            // Out-of-order pings must not move a collector backwards
+            if (!fresh && timestampMillis < slots.get(base + 3)) {
+                return true;
+            }
+            long sequence = slots.get(base);
+            slots.set(base, sequence + 1);
+            slots.set(base + 1, Double.doubleToRawLongBits(latitude));
+            slots.set(base + 2, Double.doubleToRawLongBits(longitude));
+            slots.set(base + 3, timestampMillis);
+            slots.set(base + 4, receivedMillis);
+            slots.set(base, sequence + 2);
+
+            long cell = grid.cellOf(latitude, longitude);
+            if (fresh) {
+                grid.add(cell, slot);
+            } else {
+                grid.move(cellOfSlot[slot], cell, slot);
+            }
+            cellOfSlot[slot] = cell;
+            return true;
+        }
+    }
+
+    private CollectorPosition read(int slot, String userId) {
+        int base = slot * STRIDE;
+        while (true) {
+            long before = slots.get(base);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            double latitude = Double.longBitsToDouble(slots.get(base + 1));
+            double longitude = Double.longBitsToDouble(slots.get(base + 2));
+            long timestamp = slots.get(base + 3);
+            if (slots.get(base) != before) {
+                continue;
+            }
+            // The slot may have been released and reused for another collector meanwhile
+            if (!userId.equals(owners.get(slot))) {
+                return null;
+            }
+            return new CollectorPosition(userId, latitude, longitude, Instant.ofEpochMilli(timestamp));
+        }
+    }
+}
@@ -7,63 +7,46 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Builds outgoing messages from the precompiled templates in templates/mail; delivery goes
+// through MailOutboxService
 @Service
 public class EmailService {
 
+    public static final String VERIFICATION = "verification";
+    public static final String RESET_PASSWORD = "reset-password";
+    public static final String WELCOME = "welcome";
+    public static final String COLLECTION_REMINDER = "collection-reminder";
+
     private final JavaMailSender mailSender;
+    private final MailTemplateEngine templateEngine;
 
     @Value("${app.url}")
     private String appUrl;
 
-    public EmailService(JavaMailSender mailSender) {
+    public EmailService(JavaMailSender mailSender, MailTemplateEngine templateEngine) {
         this.mailSender = mailSender;
+        this.templateEngine = templateEngine;
     }
 
-    public void sendVerificationEmail(String to, String token) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-        helper.setTo(to);
-        helper.setSubject("Garbigo - Verify Your Account");
-
-        String htmlContent = """
-                <html>
-                <body style="font-family: Arial, sans-serif; background:#f4f4f4; padding:20px;">
-                  <div style="max-width:600px; margin:auto; background:white; padding:30px; border-radius:10px;">
-                    <h1 style="color:#2e7d32;">Welcome to Garbigo!</h1>
-                    <p>Please verify your account by clicking the button below:</p>
-                    <a href="%s/auth/verify?token=%s" style="display:inline-block; padding:12px 24px; background:#2e7d32; color:white; text-decoration:none; border-radius:5px;">Verify Account</a>
-                    <p style="margin-top:30px; color:#666;">If you didn't sign up, ignore this email.</p>
-                  </div>
-                </body>
-                </html>
-                """.formatted(appUrl, token);
+    public MimeMessage createMessage(String to, String template, Locale locale, Map<String, String> model)
+            throws MessagingException {
+        if (!templateEngine.exists(template)) {
+            throw new MessagingException("Unknown mail template: " + template);
+        }
+        Map<String, String> variables = new HashMap<>(model != null ? model : Map.of());
+        variables.putIfAbsent("appUrl", appUrl);
+        MailTemplateEngine.RenderedMail rendered = templateEngine.render(template, locale, variables);
 
-        helper.setText(htmlContent, true);
-        mailSender.send(message);
-    }
-
-    public void sendResetPasswordEmail(String to, String token) throws MessagingException {
+        // Single-part HTML; no attachments, so no multipart overhead
         MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
         helper.setTo(to);
-        helper.setSubject("Garbigo - Reset Your Password");
-
-        String htmlContent = """
-                <html>
-                <body style="font-family: Arial, sans-serif; background:#f4f4f4; padding:20px;">
-                  <div style="max-width:600px; margin:auto; background:white; padding:30px; border-radius:10px;">
-                    <h1 style="color:#d32f2f;">Password Reset Request</h1>
-                    <p>Click the button below to reset your password:</p>
-                    <a href="%s/auth/reset-password/confirm?token=%s" style="display:inline-block; padding:12px 24px; background:#d32f2f; color:white; text-decoration:none; border-radius:5px;">Reset Password</a>
-                    <p style="margin-top:30px; color:#666;">This link expires in 1 hour.</p>
-                  </div>
-                </body>
-                </html>
-                """.formatted(appUrl, token);
-
-        helper.setText(htmlContent, true);
-        mailSender.send(message);
+        helper.setSubject(rendered.subject());
+        helper.setText(rendered.html(), true);
+        return message;
     }
-}
\ No newline at end of file
+}
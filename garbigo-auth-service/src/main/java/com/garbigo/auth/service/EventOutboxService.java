@@ -0,0 +1,274 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.event.UserCreatedEvent;
+import com.garbigo.auth.model.OutboxEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Transactional outbox for domain events. Events are inserted next to the write that caused
+// them (in the same Mongo transaction when events.outbox.transactional is on) and a relay
+// thread publishes them in batches, waiting for broker confirms before marking them published.
+// Delivery is at-least-once: a batch that is not confirmed is sent again, and consumers
+// deduplicate on the message id, which is the outbox id.
+@Service
+public class EventOutboxService {
+
+    private final MongoTemplate mongoTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageConverter messageConverter;
+
+    @Value("${rabbitmq.exchange.user-events:garbigo.user.events}")
+    private String userEventsExchange;
+
+    @Value("${events.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${events.outbox.poll-interval-millis:500}")
+    private long pollIntervalMillis;
+
+    @Value("${events.outbox.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${events.outbox.confirm-timeout-millis:5000}")
+    private long confirmTimeoutMillis;
+
+    @Value("${events.outbox.retry-delay-seconds:10}")
+    private long retryDelaySeconds;
+
+    @Value("${events.outbox.published-retention-hours:24}")
+    private long publishedRetentionHours;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter published;
+    private final Counter failed;
+    private final Timer publishLatency;
+    private final Timer publishDelay;
+    private final DistributionSummary batchSizes;
+
+    private final Object wakeup = new Object();
+    private volatile boolean running;
+    private Thread relay;
+    private long lastBacklogRefresh;
+
+    public EventOutboxService(MongoTemplate mongoTemplate,
+                              RabbitTemplate rabbitTemplate,
+                              MessageConverter messageConverter,
+                              MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.messageConverter = messageConverter;
+
+        this.published = meterRegistry.counter("auth.events.published");
+        this.failed = meterRegistry.counter("auth.events.publish.failed");
+        this.publishLatency = Timer.builder("auth.events.publish.latency").publishPercentileHistogram().register(meterRegistry);
+        this.publishDelay = Timer.builder("auth.events.publish.delay").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("auth.events.publish.batch.size").register(meterRegistry);
+        Gauge.builder("auth.events.outbox.depth", backlog, AtomicLong::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        relay = new Thread(this::relayLoop, "event-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // An unconfirmed batch is published again after its lease by whichever node is left
+        running = false;
+        synchronized (wakeup) {
+            wakeup.notifyAll();
+        }
+        relay.join(confirmTimeoutMillis + pollIntervalMillis);
+    }
+
+    public void enqueue(String type, String aggregateId, Object payload) {
+        Date now = new Date();
+        OutboxEvent event = new OutboxEvent();
+        event.setType(type);
+        event.setAggregateId(aggregateId);
+        event.setPayload(payload);
+        event.setCreatedAt(now);
+        event.setAvailableAt(now);
+        mongoTemplate.insert(event);
+        synchronized (wakeup) {
+            wakeup.notifyAll();
+        }
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                // Keep draining while batches come back full, then wait for new events
+                if (relayBatch() < batchSize) {
+                    refreshBacklog();
+                    synchronized (wakeup) {
+                        wakeup.wait(pollIntervalMillis);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Mongo unavailable; back off for one poll interval
+                System.err.println("Event outbox relay failed: " + e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private int relayBatch() {
+        String claim = UUID.randomUUID().toString();
+        List<OutboxEvent> batch = claimBatch(claim);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxEvent> sendable = new ArrayList<>(batch.size());
+        List<Message> messages = new ArrayList<>(batch.size());
+        List<String> exchanges = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            try {
+                String exchange = exchange(event.getType());
+                Message message = toMessage(event);
+                exchanges.add(exchange);
+                messages.add(message);
+                sendable.add(event);
+            } catch (Exception e) {
+                // Keeps one bad event from holding back the rest of the batch
+                release(List.of(event.getId()), claim, "Encoding failed: " + e.getMessage());
+            }
+        }
+        if (messages.isEmpty()) {
+            return batch.size();
+        }
+
+        List<String> sendableIds = sendable.stream().map(OutboxEvent::getId).toList();
+        long start = System.nanoTime();
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (int i = 0; i < messages.size(); i++) {
+                    operations.send(exchanges.get(i), messages.get(i).getMessageProperties().getType(), messages.get(i));
+                }
+                operations.waitForConfirmsOrDie(confirmTimeoutMillis);
+                return null;
+            });
+        } catch (Exception e) {
+            // Nacked, timed out or broker unreachable: the whole batch goes again later
+            release(sendableIds, claim, e.getMessage());
+            return batch.size();
+        } finally {
+            publishLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        Date now = new Date();
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("_id").in(sendableIds).and("claimedBy").is(claim)),
+                new Update()
+                        .set("publishedAt", now)
+                        .set("expireAt", new Date(now.getTime() + TimeUnit.HOURS.toMillis(publishedRetentionHours)))
+                        .unset("claimedBy")
+                        .unset("lastError"),
+                OutboxEvent.class);
+        published.increment(sendableIds.size());
+        batchSizes.record(sendableIds.size());
+        for (OutboxEvent event : sendable) {
+            publishDelay.record(now.getTime() - event.getCreatedAt().getTime(), TimeUnit.MILLISECONDS);
+        }
+        return batch.size();
+    }
+
+    // Oldest due events first. Candidates are read, then claimed with one update guarded by
+    // the same due condition, so relays on other nodes never publish the same claim.
+    private List<OutboxEvent> claimBatch(String claim) {
+        Date now = new Date();
+        Query due = new Query(Criteria.where("publishedAt").is(null).and("availableAt").lte(now))
+                .with(Sort.by(Sort.Direction.ASC, "availableAt"))
+                .limit(batchSize);
+        due.fields().include("_id");
+        List<String> candidates = mongoTemplate.find(due, OutboxEvent.class).stream().map(OutboxEvent::getId).toList();
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("_id").in(candidates).and("publishedAt").is(null).and("availableAt").lte(now)),
+                new Update()
+                        .set("claimedBy", claim)
+                        .set("availableAt", new Date(now.getTime() + TimeUnit.SECONDS.toMillis(leaseSeconds))),
+                OutboxEvent.class);
+        return mongoTemplate.find(new Query(Criteria.where("_id").in(candidates).and("claimedBy").is(claim))
+                .with(Sort.by(Sort.Direction.ASC, "_id")), OutboxEvent.class);
+    }
+
+    private void release(List<String> ids, String claim, String error) {
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("_id").in(ids).and("claimedBy").is(claim)),
+                new Update()
+                        .set("availableAt", new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(retryDelaySeconds)))
+                        .set("lastError", error)
+                        .inc("attempts", 1)
+                        .unset("claimedBy"),
+                OutboxEvent.class);
+        failed.increment(ids.size());
+        System.err.println("Publishing " + ids.size() + " outbox events failed: " + error);
+    }
+
+    // The converter sets content type, event type and schema version
+    private Message toMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(event.getId());
+        properties.setTimestamp(event.getCreatedAt());
+        return messageConverter.toMessage(event.getPayload(), properties);
+    }
+
+    // The event type is the routing key on its exchange
+    private String exchange(String type) {
+        return switch (type) {
+            case UserCreatedEvent.TYPE -> userEventsExchange;
+            default -> throw new IllegalArgumentException("No exchange for event type " + type);
+        };
+    }
+
+    private void refreshBacklog() {
+        long now = System.currentTimeMillis();
+        if (now - lastBacklogRefresh < 5000) {
+            return;
+        }
+        lastBacklogRefresh = now;
+        try {
+            backlog.set(mongoTemplate.count(new Query(Criteria.where("publishedAt").is(null)), OutboxEvent.class));
+        } catch (Exception e) {
+            System.err.println("Event outbox depth refresh failed: " + e.getMessage());
+        }
+    }
+}
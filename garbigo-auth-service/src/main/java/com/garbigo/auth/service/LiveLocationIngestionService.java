@@ -0,0 +1,159 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.model.LiveLocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Buffers collector pings in a bounded queue and writes them to Mongo in unordered bulk inserts,
+// flushing when a batch fills or the flush interval elapses. Depends on the collection initializer
+// so the first flush cannot implicitly create live_locations as a regular collection.
+@Service
+@DependsOn("liveLocationCollectionInitializer")
+public class LiveLocationIngestionService {
+
+    private final MongoTemplate mongoTemplate;
+    private final CollectorPositionRegistry positionRegistry;
+    private final CollectorPositionBroadcaster positionBroadcaster;
+    private final BlockingQueue<LiveLocation> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long drainTimeoutMillis;
+
+    private final Counter rejected;
+    private final Counter failed;
+    private final DistributionSummary flushSize;
+    private final Timer flushLatency;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public LiveLocationIngestionService(MongoTemplate mongoTemplate,
+                                        CollectorPositionRegistry positionRegistry,
+                                        CollectorPositionBroadcaster positionBroadcaster,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${live-location.ingestion.queue-capacity:10000}") int queueCapacity,
+                                        @Value("${live-location.ingestion.batch-size:500}") int batchSize,
+                                        @Value("${live-location.ingestion.flush-interval-millis:1000}") long flushIntervalMillis,
+                                        @Value("${live-location.ingestion.drain-timeout-millis:10000}") long drainTimeoutMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.positionRegistry = positionRegistry;
+        this.positionBroadcaster = positionBroadcaster;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.drainTimeoutMillis = drainTimeoutMillis;
+
+        this.rejected = meterRegistry.counter("auth.live-location.ingestion.rejected");
+        this.failed = meterRegistry.counter("auth.live-location.ingestion.failed");
+        this.flushSize = DistributionSummary.builder("auth.live-location.ingestion.flush.size").register(meterRegistry);
+        this.flushLatency = Timer.builder("auth.live-location.ingestion.flush.latency").register(meterRegistry);
+        Gauge.builder("auth.live-location.ingestion.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        flusher = new Thread(this::flushLoop, "live-location-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Returns false when the queue is full so the caller can shed load
+    public boolean submit(LiveLocation location) {
+        if (queue.offer(location)) {
+            positionRegistry.update(location.getUserId(), location.getLatitude(), location.getLongitude(),
+                    location.getTimestamp().toEpochMilli());
+            positionBroadcaster.markDirty(location.getUserId());
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Runs after the web server has stopped accepting pings. The flusher notices within one
+        // poll interval and writes out whatever is still queued; it is not interrupted mid-write.
+        running = false;
+        flusher.join(drainTimeoutMillis);
+        if (!queue.isEmpty()) {
+            System.err.println("Dropped " + queue.size() + " live locations on shutdown");
+        }
+    }
+
+    private void flushLoop() {
+        List<LiveLocation> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collectBatch(List<LiveLocation> batch) throws InterruptedException {
+        if (!running) {
+            queue.drainTo(batch, batchSize);
+            return;
+        }
+
+        LiveLocation first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            LiveLocation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<LiveLocation> batch) {
+        long start = System.nanoTime();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LiveLocation.class)
+                    .insert(batch)
+                    .execute();
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            System.err.println("Failed to write " + batch.size() + " live locations: " + e.getMessage());
+        } finally {
+            flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            flushSize.record(batch.size());
+        }
+    }
+}
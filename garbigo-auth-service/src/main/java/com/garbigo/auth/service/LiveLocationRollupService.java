@@ -0,0 +1,82 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.model.LiveLocation;
+import com.garbigo.auth.model.LiveLocationRollup;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+// Downsamples raw live_locations into one document per user per hour (one point per bucket),
+// so route history outlives the raw retention at a fraction of the size.
+@Service
+public class LiveLocationRollupService {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${live-location.history.rollup-bucket-seconds:60}")
+    private int bucketSeconds;
+
+    // Closed hours re-rolled on every run; $merge replaces, so repeats are harmless
+    @Value("${live-location.history.rollup-catch-up-hours:3}")
+    private int catchUpHours;
+
+    public LiveLocationRollupService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Scheduled(cron = "${live-location.history.rollup-cron:0 5 * * * *}")
+    public void rollupRecentHours() {
+        Instant currentHour = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        for (int i = catchUpHours; i >= 1; i--) {
+            Instant hour = currentHour.minus(i, ChronoUnit.HOURS);
+            try {
+                rollup(hour);
+            } catch (Exception e) {
+                System.err.println("Live location rollup failed for " + hour + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public void rollup(Instant hour) {
+        Date start = Date.from(hour);
+        Date end = Date.from(hour.plus(1, ChronoUnit.HOURS));
+
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("timestamp", new Document("$gte", start).append("$lt", end))),
+                new Document("$sort", new Document("userId", 1).append("timestamp", 1)),
+                new Document("$group", new Document("_id", new Document("userId", "$userId")
+                        .append("bucket", new Document("$dateTrunc", new Document("date", "$timestamp")
+                                .append("unit", "second")
+                                .append("binSize", bucketSeconds))))
+                        .append("t", new Document("$first", "$timestamp"))
+                        .append("latitude", new Document("$first", "$latitude"))
+                        .append("longitude", new Document("$first", "$longitude"))),
+                new Document("$sort", new Document("_id.userId", 1).append("t", 1)),
+                new Document("$group", new Document("_id", "$_id.userId")
+                        .append("count", new Document("$sum", 1))
+                        .append("points", new Document("$push", new Document("t", "$t")
+                                .append("latitude", "$latitude")
+                                .append("longitude", "$longitude")))),
+                new Document("$project", new Document("_id", new Document("$concat",
+                        List.of("$_id", ":" + hour.getEpochSecond())))
+                        .append("userId", "$_id")
+                        .append("hour", start)
+                        .append("count", 1)
+                        .append("points", 1)),
+                new Document("$merge", new Document("into", mongoTemplate.getCollectionName(LiveLocationRollup.class))
+                        .append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert")));
+
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(LiveLocation.class))
+                .aggregate(pipeline)
+                .allowDiskUse(true)
+                .toCollection();
+    }
+}
@@ -0,0 +1,61 @@
+package com.garbigo.auth.service;
+
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sends a batch of messages in one JavaMailSender call, which reuses a single SMTP connection
+// for the whole batch, and reports which messages failed.
+@Component
+public class MailBatchSender {
+
+    private final JavaMailSender mailSender;
+
+    public MailBatchSender(JavaMailSender mailSender) {
+        this.mailSender = mailSender;
+    }
+
+    // Returns failures keyed by position in the batch; empty when everything was accepted
+    public Map<Integer, String> send(List<MimeMessage> batch) {
+        Map<Integer, String> failures = new HashMap<>();
+        if (batch.isEmpty()) {
+            return failures;
+        }
+        try {
+            mailSender.send(batch.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            if (failed.isEmpty()) {
+                markAll(batch, failures, e);
+                return failures;
+            }
+            Map<Object, Integer> positions = new IdentityHashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                positions.put(batch.get(i), i);
+            }
+            failed.forEach((message, cause) -> {
+                Integer position = positions.get(message);
+                if (position != null) {
+                    failures.put(position, String.valueOf(cause.getMessage()));
+                }
+            });
+        } catch (MailException e) {
+            // Connection or authentication failure: nothing in the batch was sent
+            markAll(batch, failures, e);
+        }
+        return failures;
+    }
+
+    private static void markAll(List<MimeMessage> batch, Map<Integer, String> failures, Exception e) {
+        for (int i = 0; i < batch.size(); i++) {
+            failures.put(i, String.valueOf(e.getMessage()));
+        }
+    }
+}
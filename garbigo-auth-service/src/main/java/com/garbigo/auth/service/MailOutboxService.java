@@ -0,0 +1,307 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.model.MailMessage;
+import com.garbigo.auth.model.MailStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Durable email delivery. Messages are written to mail_outbox and sent by a small worker pool:
+// a dispatcher thread claims due messages with findAndModify (so several nodes can share the
+// outbox), each worker sends its batch over one SMTP connection, and failures are retried with
+// exponential backoff until they are dead-lettered. Claims carry a lease, so messages held by a
+// node that died are picked up again once the lease runs out.
+@Service
+public class MailOutboxService {
+
+    private final MongoTemplate mongoTemplate;
+    private final EmailService emailService;
+    private final MailBatchSender batchSender;
+
+    @Value("${mail.outbox.workers:4}")
+    private int workerCount;
+
+    @Value("${mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${mail.outbox.poll-interval-millis:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${mail.outbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${mail.outbox.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    @Value("${mail.outbox.sent-retention-days:7}")
+    private long sentRetentionDays;
+
+    @Value("${mail.outbox.dead-retention-days:30}")
+    private long deadRetentionDays;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter dead;
+    private final Timer sendLatency;
+    private final Timer deliveryDelay;
+    private final DistributionSummary batchSizes;
+
+    private final Object wakeup = new Object();
+    private volatile boolean running;
+    private Thread dispatcher;
+    private ExecutorService workers;
+    private Semaphore idleWorkers;
+    private long lastBacklogRefresh;
+
+    public MailOutboxService(MongoTemplate mongoTemplate,
+                             EmailService emailService,
+                             MailBatchSender batchSender,
+                             MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.emailService = emailService;
+        this.batchSender = batchSender;
+
+        this.sent = meterRegistry.counter("auth.mail.sent");
+        this.retried = meterRegistry.counter("auth.mail.retried");
+        this.dead = meterRegistry.counter("auth.mail.dead");
+        this.sendLatency = Timer.builder("auth.mail.send.latency").publishPercentileHistogram().register(meterRegistry);
+        this.deliveryDelay = Timer.builder("auth.mail.delivery.delay").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("auth.mail.send.batch.size").register(meterRegistry);
+        Gauge.builder("auth.mail.outbox.depth", backlog, AtomicLong::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        // Platform threads even in virtual-thread mode: Jakarta Mail holds monitors around its
+        // socket I/O, which would pin carriers, and the pool size is the SMTP connection limit anyway
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "mail-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        idleWorkers = new Semaphore(workerCount);
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "mail-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Batches in flight finish; anything still claimed is retried by another node after the lease
+        running = false;
+        synchronized (wakeup) {
+            wakeup.notifyAll();
+        }
+        dispatcher.join(pollIntervalMillis * 2);
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    public void enqueue(String to, String template, Locale locale, Map<String, String> model) {
+        Date now = new Date();
+        MailMessage message = new MailMessage();
+        message.setTo(to);
+        message.setTemplate(template);
+        message.setModel(model);
+        message.setLocale(locale != null ? locale.toLanguageTag() : null);
+        message.setCreatedAt(now);
+        message.setNextAttemptAt(now);
+        mongoTemplate.insert(message);
+        synchronized (wakeup) {
+            wakeup.notifyAll();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                if (!idleWorkers.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                List<MailMessage> batch = claimBatch();
+                if (batch.isEmpty()) {
+                    idleWorkers.release();
+                    refreshBacklog();
+                    synchronized (wakeup) {
+                        wakeup.wait(pollIntervalMillis);
+                    }
+                    continue;
+                }
+                workers.execute(() -> {
+                    try {
+                        deliver(batch);
+                    } catch (Exception e) {
+                        System.err.println("Mail batch delivery failed: " + e.getMessage());
+                    } finally {
+                        idleWorkers.release();
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Mongo unavailable; back off for one poll interval
+                System.err.println("Mail outbox dispatch failed: " + e.getMessage());
+                idleWorkers.release();
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<MailMessage> claimBatch() {
+        Date now = new Date();
+        Query due = new Query(new Criteria().orOperator(
+                Criteria.where("status").is(MailStatus.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(MailStatus.SENDING).and("lockedUntil").lte(now)))
+                .with(Sort.by(Sort.Direction.ASC, "nextAttemptAt"));
+        Update claim = new Update()
+                .set("status", MailStatus.SENDING)
+                .set("lockedUntil", new Date(now.getTime() + TimeUnit.SECONDS.toMillis(leaseSeconds)));
+
+        List<MailMessage> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize) {
+            MailMessage message = mongoTemplate.findAndModify(due, claim,
+                    FindAndModifyOptions.options().returnNew(true), MailMessage.class);
+            if (message == null) {
+                break;
+            }
+            batch.add(message);
+        }
+        return batch;
+    }
+
+    private void deliver(List<MailMessage> batch) {
+        List<MailMessage> sendable = new ArrayList<>(batch.size());
+        List<MimeMessage> mimeMessages = new ArrayList<>(batch.size());
+        BulkOperations results = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MailMessage.class);
+
+        for (MailMessage message : batch) {
+            try {
+                mimeMessages.add(emailService.createMessage(message.getTo(), message.getTemplate(),
+                        message.getLocale() != null ? Locale.forLanguageTag(message.getLocale()) : null,
+                        message.getModel()));
+                sendable.add(message);
+            } catch (Exception e) {
+                // A message that cannot be rendered will not render on retry either
+                markDead(results, message, "Render failed: " + e.getMessage());
+            }
+        }
+
+        Map<Integer, String> failures = sendLatency.record(() -> batchSender.send(mimeMessages));
+        batchSizes.record(mimeMessages.size());
+
+        Date now = new Date();
+        for (int i = 0; i < sendable.size(); i++) {
+            MailMessage message = sendable.get(i);
+            String error = failures.get(i);
+            if (error == null) {
+                results.updateOne(owned(message), new Update()
+                        .set("status", MailStatus.SENT)
+                        .set("sentAt", now)
+                        .set("expireAt", new Date(now.getTime() + TimeUnit.DAYS.toMillis(sentRetentionDays)))
+                        .unset("model")
+                        .unset("lockedUntil"));
+                sent.increment();
+                deliveryDelay.record(now.getTime() - message.getCreatedAt().getTime(), TimeUnit.MILLISECONDS);
+            } else if (message.getAttempts() + 1 >= maxAttempts) {
+                markDead(results, message, error);
+            } else {
+                long delay = backoffMillis(message.getAttempts() + 1,
+                        TimeUnit.SECONDS.toMillis(initialBackoffSeconds), TimeUnit.SECONDS.toMillis(maxBackoffSeconds));
+                // Jitter spreads retries after an SMTP outage
+                delay += ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+                results.updateOne(owned(message), new Update()
+                        .set("status", MailStatus.PENDING)
+                        .inc("attempts", 1)
+                        .set("nextAttemptAt", new Date(now.getTime() + delay))
+                        .set("lastError", error)
+                        .unset("lockedUntil"));
+                retried.increment();
+            }
+        }
+        if (!batch.isEmpty()) {
+            results.execute();
+        }
+    }
+
+    private void markDead(BulkOperations results, MailMessage message, String error) {
+        Date now = new Date();
+        results.updateOne(owned(message), new Update()
+                .set("status", MailStatus.DEAD)
+                .inc("attempts", 1)
+                .set("lastError", error)
+                .set("expireAt", new Date(now.getTime() + TimeUnit.DAYS.toMillis(deadRetentionDays)))
+                // The model holds raw one-time tokens; a dead letter keeps only what is needed to diagnose it
+                .unset("model")
+                .unset("lockedUntil"));
+        dead.increment();
+        System.err.println("Mail to " + message.getTo() + " dead-lettered: " + error);
+    }
+
+    // Only touch the message if this node's claim is still the current one
+    private static Query owned(MailMessage message) {
+        return new Query(Criteria.where("_id").is(message.getId())
+                .and("status").is(MailStatus.SENDING)
+                .and("lockedUntil").is(message.getLockedUntil()));
+    }
+
+    private void refreshBacklog() {
+        long now = System.currentTimeMillis();
+        if (now - lastBacklogRefresh < 5000) {
+            return;
+        }
+        lastBacklogRefresh = now;
+        try {
+            backlog.set(mongoTemplate.count(
+                    new Query(Criteria.where("status").in(MailStatus.PENDING, MailStatus.SENDING)), MailMessage.class));
+        } catch (Exception e) {
+            System.err.println("Mail outbox depth refresh failed: " + e.getMessage());
+        }
+    }
+
+    // initial, 2x, 4x ... capped at max
+    static long backoffMillis(int attempt, long initialMillis, long maxMillis) {
+        int exponent = Math.min(Math.max(attempt - 1, 0), 30);
+        return Math.min(initialMillis << exponent, maxMillis);
+    }
+}
@@ -0,0 +1,133 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.util.CompiledTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Loads every templates/mail/*.html once at startup. Files are named <template>[_<language>[_<COUNTRY>]].html
+// and the subject is taken from the <title> element. Rendering reuses pooled buffers; a shared pool
+// rather than ThreadLocal, since mail may be rendered from short-lived or virtual threads.
+@Component
+public class MailTemplateEngine {
+
+    private static final String LOCATION = "classpath:templates/mail/*.html";
+    private static final Pattern TITLE = Pattern.compile("<title>(.*?)</title>", Pattern.DOTALL);
+    private static final int POOLED_BUFFERS = 16;
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+
+    public record RenderedMail(String subject, String html) {
+    }
+
+    private record Entry(String subject, CompiledTemplate body) {
+    }
+
+    private final Map<String, Entry> templates = new HashMap<>();
+    private final Map<String, Timer> renderTimers = new ConcurrentHashMap<>();
+    private final BlockingQueue<StringBuilder> buffers = new ArrayBlockingQueue<>(POOLED_BUFFERS);
+    private final MeterRegistry meterRegistry;
+
+    public MailTemplateEngine(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Fails startup on a malformed template rather than on the first send
+    @PostConstruct
+    void load() throws IOException {
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+            String filename = resource.getFilename();
+            if (filename == null) {
+                continue;
+            }
+            String source;
+            try (InputStream in = resource.getInputStream()) {
+                source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            Matcher title = TITLE.matcher(source);
+            if (!title.find()) {
+                throw new IllegalStateException("Mail template " + filename + " has no <title> to use as subject");
+            }
+            try {
+                templates.put(filename.substring(0, filename.length() - ".html".length()),
+                        new Entry(title.group(1).trim(), CompiledTemplate.compile(source)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid mail template " + filename + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public boolean exists(String template) {
+        return templates.containsKey(template);
+    }
+
+    public RenderedMail render(String template, Locale locale, Map<String, String> model) {
+        Entry entry = resolve(template, locale);
+        Timer timer = renderTimers.computeIfAbsent(template, name -> Timer.builder("auth.mail.render.latency")
+                .tag("template", name)
+                .register(meterRegistry));
+
+        long start = System.nanoTime();
+        StringBuilder buffer = borrow(entry.body().estimatedLength());
+        try {
+            entry.body().renderTo(buffer, model);
+            return new RenderedMail(entry.subject(), buffer.toString());
+        } finally {
+            release(buffer);
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Most specific first: name_sw_KE, name_sw, name
+    private Entry resolve(String template, Locale locale) {
+        if (locale != null && !locale.getLanguage().isEmpty()) {
+            if (!locale.getCountry().isEmpty()) {
+                Entry entry = templates.get(template + "_" + locale.getLanguage() + "_" + locale.getCountry());
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            Entry entry = templates.get(template + "_" + locale.getLanguage());
+            if (entry != null) {
+                return entry;
+            }
+        }
+        Entry entry = templates.get(template);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown mail template: " + template);
+        }
+        return entry;
+    }
+
+    private StringBuilder borrow(int capacity) {
+        StringBuilder buffer = buffers.poll();
+        if (buffer == null) {
+            return new StringBuilder(capacity);
+        }
+        buffer.ensureCapacity(capacity);
+        return buffer;
+    }
+
+    private void release(StringBuilder buffer) {
+        // Oversized buffers are dropped so one huge message does not pin memory
+        if (buffer.capacity() <= MAX_POOLED_CAPACITY) {
+            buffer.setLength(0);
+            buffers.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.exception.CustomException;
+import com.garbigo.auth.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.redisson.api.RKeys;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+// Rotating refresh tokens. Every login starts a family; each refresh retires the presented token and
+// issues its successor. The family lives in one Redis hash holding the current token's hash, the
+// retired hashes and the user's token version, with a sliding idle TTL and an absolute lifetime.
+// Presenting a retired token means it was copied, so the whole family is revoked.
+@Service
+public class RefreshTokenService {
+
+    private static final String FAMILY_PREFIX = "refresh_family:";
+
+    private static final String ISSUE_SCRIPT = """
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            redis.call('HSET', KEYS[1], 'current', ARGV[1], 'user', ARGV[2], 'ver', ARGV[3],
+                    'expires', tostring(now + tonumber(ARGV[5])))
+            redis.call('PEXPIRE', KEYS[1], math.min(tonumber(ARGV[4]), tonumber(ARGV[5])))
+            return 1
+            """;
+
+    // Returns {1, user, ver} after rotating, {-1, user, ver} on reuse (family deleted), {0, '', ''} otherwise
+    private static final String ROTATE_SCRIPT = """
+            local state = redis.call('HMGET', KEYS[1], 'current', 'user', 'ver', 'expires')
+            if not state[1] then
+                return {0, '', ''}
+            end
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local expires = tonumber(state[4])
+            if state[1] == ARGV[1] then
+                if expires <= now then
+                    redis.call('DEL', KEYS[1])
+                    return {0, '', ''}
+                end
+                redis.call('HSET', KEYS[1], 'current', ARGV[2], 'r:' .. ARGV[1], '1')
+                redis.call('PEXPIRE', KEYS[1], math.min(tonumber(ARGV[3]), expires - now))
+                return {1, state[2], state[3]}
+            end
+            if redis.call('HEXISTS', KEYS[1], 'r:' .. ARGV[1]) == 1 then
+                redis.call('DEL', KEYS[1])
+                return {-1, state[2], state[3]}
+            end
+            return {0, '', ''}
+            """;
+
+    public record Rotation(String userId, int tokenVersion, String refreshToken) {
+    }
+
+    private final RScript script;
+    private final RKeys keys;
+    private final SecureRandom random = new SecureRandom();
+    private final Counter issued;
+    private final Counter rotated;
+    private final Counter rejected;
+    private final Counter reuseDetected;
+
+    @Value("${jwt.refresh.idle-validity:14d}")
+    private Duration idleValidity;
+
+    @Value("${jwt.refresh.max-lifetime:60d}")
+    private Duration maxLifetime;
+
+    public RefreshTokenService(RedissonClient redissonClient, MeterRegistry meterRegistry) {
+        this.script = redissonClient.getScript(StringCodec.INSTANCE);
+        this.keys = redissonClient.getKeys();
+        this.issued = meterRegistry.counter("auth.refresh.issued");
+        this.rotated = meterRegistry.counter("auth.refresh.rotated");
+        this.rejected = meterRegistry.counter("auth.refresh.rejected");
+        this.reuseDetected = meterRegistry.counter("auth.refresh.reuse-detected");
+    }
+
+    // Starts a new family; the raw token is <familyId>.<secret> and only its hash is stored
+    public String issue(User user) {
+        String familyId = randomToken(16);
+        String rawToken = familyId + "." + randomToken(32);
+        script.eval(RScript.Mode.READ_WRITE, ISSUE_SCRIPT, RScript.ReturnType.INTEGER,
+                List.<Object>of(FAMILY_PREFIX + familyId), TokenService.hash(rawToken), user.getId(),
+                String.valueOf(user.getTokenVersion()), String.valueOf(idleValidity.toMillis()),
+                String.valueOf(maxLifetime.toMillis()));
+        issued.increment();
+        return rawToken;
+    }
+
+    // Single use: the presented token is retired in the same script that issues its successor
+    public Rotation rotate(String rawToken) {
+        String familyId = familyId(rawToken);
+        String nextToken = familyId + "." + randomToken(32);
+        List<Object> reply = script.eval(RScript.Mode.READ_WRITE, ROTATE_SCRIPT, RScript.ReturnType.MULTI,
+                List.<Object>of(FAMILY_PREFIX + familyId), TokenService.hash(rawToken),
+                TokenService.hash(nextToken), String.valueOf(idleValidity.toMillis()));
+
+        long outcome = ((Number) reply.get(0)).longValue();
+        if (outcome == 1) {
+            rotated.increment();
+            return new Rotation((String) reply.get(1), Integer.parseInt((String) reply.get(2)), nextToken);
+        }
+        if (outcome == -1) {
+            reuseDetected.increment();
+            System.err.println("Refresh token reuse for user " + reply.get(1) + "; token family " + familyId + " revoked");
+        } else {
+            rejected.increment();
+        }
+        throw new CustomException("Invalid or expired refresh token");
+    }
+
+    // Ends the family the token belongs to, e.g. when the account no longer matches it
+    public void revokeFamily(String rawToken) {
+        keys.delete(FAMILY_PREFIX + familyId(rawToken));
+    }
+
+    private static String familyId(String rawToken) {
+        int separator = rawToken == null ? -1 : rawToken.indexOf('.');
+        if (separator <= 0 || separator == rawToken.length() - 1) {
+            throw new CustomException("Invalid or expired refresh token");
+        }
+        return rawToken.substring(0, separator);
+    }
+
+    private String randomToken(int bytes) {
+        byte[] value = new byte[bytes];
+        random.nextBytes(value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value);
+    }
+}
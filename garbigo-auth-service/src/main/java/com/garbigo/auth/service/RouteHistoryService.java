@@ -0,0 +1,210 @@
+package com.garbigo.auth.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbigo.auth.exception.CustomException;
+import com.garbigo.auth.model.LiveLocation;
+import com.garbigo.auth.model.LiveLocationRollup;
+import com.garbigo.auth.util.DouglasPeucker;
+import com.garbigo.auth.util.PolylineEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Streams a collector's route as NDJSON. Points are read from a Mongo cursor, simplified with
+// Douglas-Peucker chunk by chunk and sent as encoded polylines, so neither the server nor the
+// response ever holds the full list of pings.
+@Service
+public class RouteHistoryService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Raw pings older than this are gone; the hourly rollups cover that part of the range
+    @Value("${live-location.history.raw-retention-days:7}")
+    private int rawRetentionDays;
+
+    @Value("${live-location.route.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${live-location.route.max-range-days:31}")
+    private int maxRangeDays;
+
+    @Value("${live-location.route.max-tolerance-meters:500}")
+    private double maxToleranceMeters;
+
+    public RouteHistoryService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Validates eagerly so bad requests fail with 400 before the response is committed
+    public StreamingResponseBody route(String userId, Instant from, Instant to, double toleranceMeters) {
+        if (!from.isBefore(to)) {
+            throw new CustomException("'from' must be before 'to'");
+        }
+        if (Duration.between(from, to).compareTo(Duration.ofDays(maxRangeDays)) > 0) {
+            throw new CustomException("Route range cannot exceed " + maxRangeDays + " days");
+        }
+        if (toleranceMeters < 0 || toleranceMeters > maxToleranceMeters) {
+            throw new CustomException("toleranceMeters must be between 0 and " + maxToleranceMeters);
+        }
+        return out -> write(userId, from, to, toleranceMeters, out);
+    }
+
+    private void write(String userId, Instant from, Instant to, double toleranceMeters, OutputStream out)
+            throws IOException {
+        Instant rawStart = Instant.now().minus(rawRetentionDays, ChronoUnit.DAYS);
+        ChunkWriter writer = new ChunkWriter(out, toleranceMeters);
+
+        try {
+            if (from.isBefore(rawStart)) {
+                Instant rollupEnd = to.isBefore(rawStart) ? to : rawStart;
+                streamRollups(userId, from, rollupEnd, writer);
+            }
+            if (to.isAfter(rawStart)) {
+                streamRaw(userId, from.isAfter(rawStart) ? from : rawStart, to, writer);
+            }
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            // Client went away mid-stream; closing the cursor stream is all that is left to do
+            throw e.getCause();
+        }
+    }
+
+    private void streamRaw(String userId, Instant from, Instant to, ChunkWriter writer) {
+        Query query = new Query(Criteria.where("userId").is(userId).and("timestamp").gte(from).lte(to))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp"))
+                .cursorBatchSize(chunkSize);
+        query.fields().include("latitude", "longitude", "timestamp").exclude("_id");
+
+        try (Stream<LiveLocation> locations = mongoTemplate.stream(query, LiveLocation.class)) {
+            locations.forEach(l -> writer.add(l.getLatitude(), l.getLongitude(), l.getTimestamp()));
+        }
+    }
+
+    private void streamRollups(String userId, Instant from, Instant to, ChunkWriter writer) {
+        Query query = new Query(Criteria.where("userId").is(userId)
+                .and("hour").gte(from.truncatedTo(ChronoUnit.HOURS)).lt(to))
+                .with(Sort.by(Sort.Direction.ASC, "hour"));
+
+        try (Stream<LiveLocationRollup> rollups = mongoTemplate.stream(query, LiveLocationRollup.class)) {
+            rollups.forEach(rollup -> {
+                if (rollup.getPoints() == null) {
+                    return;
+                }
+                for (LiveLocationRollup.Point p : rollup.getPoints()) {
+                    if (!p.getT().isBefore(from) && p.getT().isBefore(to)) {
+                        writer.add(p.getLatitude(), p.getLongitude(), p.getT());
+                    }
+                }
+            });
+        }
+    }
+
+    // Buffers up to chunkSize points in primitive arrays and writes one NDJSON line per chunk.
+    // The last point of a chunk is carried over as the anchor of the next one, so simplification
+    // stays continuous across chunk boundaries without repeating the point in the output.
+    private final class ChunkWriter {
+        private final OutputStream out;
+        private final double toleranceMeters;
+        private final double[] latitudes = new double[chunkSize + 1];
+        private final double[] longitudes = new double[chunkSize + 1];
+        private final long[] seconds = new long[chunkSize + 1];
+        private final boolean[] keep = new boolean[chunkSize + 1];
+        private final double[] keptLatitudes = new double[chunkSize + 1];
+        private final double[] keptLongitudes = new double[chunkSize + 1];
+        private final long[] keptSeconds = new long[chunkSize + 1];
+        private final StringBuilder polyline = new StringBuilder();
+        private final StringBuilder times = new StringBuilder();
+        private int size;
+        private boolean anchored;
+        private long inputPoints;
+        private long outputPoints;
+
+        ChunkWriter(OutputStream out, double toleranceMeters) {
+            this.out = out;
+            this.toleranceMeters = toleranceMeters;
+        }
+
+        void add(double latitude, double longitude, Instant timestamp) {
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            seconds[size] = timestamp.getEpochSecond();
+            size++;
+            inputPoints++;
+            if (size == latitudes.length) {
+                flush();
+            }
+        }
+
+        void finish() {
+            flush();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("done", true);
+            summary.put("inputPoints", inputPoints);
+            summary.put("outputPoints", outputPoints);
+            writeLine(summary);
+        }
+
+        private void flush() {
+            int first = anchored ? 1 : 0;
+            if (size <= first) {
+                return;
+            }
+
+            DouglasPeucker.simplify(latitudes, longitudes, size, toleranceMeters, keep);
+            int kept = 0;
+            for (int i = first; i < size; i++) {
+                if (keep[i]) {
+                    keptLatitudes[kept] = latitudes[i];
+                    keptLongitudes[kept] = longitudes[i];
+                    keptSeconds[kept] = seconds[i];
+                    kept++;
+                }
+            }
+
+            polyline.setLength(0);
+            times.setLength(0);
+            PolylineEncoder.encodePoints(keptLatitudes, keptLongitudes, kept, polyline);
+            PolylineEncoder.encodeDeltas(keptSeconds, kept, times);
+
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("from", Instant.ofEpochSecond(keptSeconds[0]).toString());
+            line.put("to", Instant.ofEpochSecond(keptSeconds[kept - 1]).toString());
+            line.put("points", kept);
+            line.put("polyline", polyline.toString());
+            line.put("times", times.toString());
+            writeLine(line);
+            outputPoints += kept;
+
+            latitudes[0] = latitudes[size - 1];
+            longitudes[0] = longitudes[size - 1];
+            seconds[0] = seconds[size - 1];
+            size = 1;
+            anchored = true;
+        }
+
+        private void writeLine(Map<String, Object> line) {
+            try {
+                out.write(objectMapper.writeValueAsBytes(line));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
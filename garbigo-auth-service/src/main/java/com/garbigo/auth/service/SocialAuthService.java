@@ -1,33 +1,26 @@
 package com.garbigo.auth.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.garbigo.auth.dto.AuthResponse;
 import com.garbigo.auth.dto.SocialLoginRequest;
 import com.garbigo.auth.exception.CustomException;
 import com.garbigo.auth.feign.OtherServiceClient;
+import com.garbigo.auth.http.OutboundHttp;
+import com.garbigo.auth.http.ProviderHttpClient;
 import com.garbigo.auth.model.Role;
 import com.garbigo.auth.model.User;
 import com.garbigo.auth.repository.UserRepository;
+import com.garbigo.auth.security.IdentityProviderKeys;
 import com.garbigo.auth.security.JwtUtil;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.math.BigInteger;
-import java.security.KeyFactory;
-import java.security.PublicKey;
-import java.security.spec.RSAPublicKeySpec;
-import java.util.Base64;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class SocialAuthService {
@@ -35,12 +28,16 @@ public class SocialAuthService {
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
     private final OtherServiceClient otherServiceClient;
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final IdentityProviderKeys identityProviderKeys;
+    private final ProviderHttpClient facebookHttp;
+    private final RefreshTokenService refreshTokenService;
 
     @Value("${google.client-id}")
     private String googleClientId;
 
+    @Value("${facebook.graph-url:https://graph.facebook.com}")
+    private String facebookGraphUrl;
+
     @Value("${facebook.app-id}")
     private String facebookAppId;
 
@@ -50,26 +47,31 @@ public class SocialAuthService {
     @Value("${apple.client-id}")
     private String appleClientId;
 
-    public SocialAuthService(UserRepository userRepository, JwtUtil jwtUtil, OtherServiceClient otherServiceClient) {
+    public SocialAuthService(UserRepository userRepository,
+                             JwtUtil jwtUtil,
+                             OtherServiceClient otherServiceClient,
+                             IdentityProviderKeys identityProviderKeys,
+                             OutboundHttp outboundHttp,
+                             RefreshTokenService refreshTokenService) {
         this.userRepository = userRepository;
         this.jwtUtil = jwtUtil;
         this.otherServiceClient = otherServiceClient;
+        this.identityProviderKeys = identityProviderKeys;
+        this.facebookHttp = outboundHttp.provider("facebook");
+        this.refreshTokenService = refreshTokenService;
     }
 
     public AuthResponse googleLogin(SocialLoginRequest request) {
         try {
-            GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(new NetHttpTransport(), new GsonFactory())
-                    .setAudience(Collections.singletonList(googleClientId))
-                    .build();
-
-            GoogleIdToken idToken = verifier.verify(request.getToken());
-            if (idToken == null) {
+            // Signature checked against Google's cached certs; no network call per login
+            Claims claims = identityProviderKeys.verifyGoogle(request.getToken());
+            Set<String> audience = claims.getAudience();
+            if (audience == null || !audience.contains(googleClientId)) {
                 throw new CustomException("Invalid Google token");
             }
 
-            GoogleIdToken.Payload payload = idToken.getPayload();
-            String email = payload.getEmail();
-            String name = (String) payload.get("name");
+            String email = claims.get("email", String.class);
+            String name = claims.get("name", String.class);
 
             User user = findOrCreateSocialUser(email, name != null ? name : "Google User");
             user.setVerified(true);
@@ -83,24 +85,26 @@ public class SocialAuthService {
 
     public AuthResponse facebookLogin(SocialLoginRequest request) {
         try {
-            String appAccessToken = facebookAppId + "|" + facebookAppSecret;
-            String debugUrl = "https://graph.facebook.com/debug_token?input_token=" + request.getToken() + "&access_token=" + appAccessToken;
-
-            ResponseEntity<Map> response = restTemplate.getForEntity(debugUrl, Map.class);
-            Map<String, Object> data = (Map<String, Object>) response.getBody().get("data");
-
-            if (data == null || !(Boolean) data.get("is_valid")) {
+            String userToken = encode(request.getToken());
+            String appAccessToken = encode(facebookAppId + "|" + facebookAppSecret);
+
+            // Both Graph calls run concurrently: /me answers for whoever owns the token, and
+            // debug_token then confirms it is valid, issued to this app and for that same user
+            CompletableFuture<JsonNode> debug = facebookHttp.getJsonAsync(URI.create(
+                    facebookGraphUrl + "/debug_token?input_token=" + userToken + "&access_token=" + appAccessToken));
+            CompletableFuture<JsonNode> me = facebookHttp.getJsonAsync(URI.create(
+                    facebookGraphUrl + "/me?fields=id,name,email&access_token=" + userToken));
+
+            JsonNode data = debug.join().path("data");
+            JsonNode userInfo = me.join();
+            if (!data.path("is_valid").asBoolean(false)
+                    || !facebookAppId.equals(data.path("app_id").asText())
+                    || !data.path("user_id").asText().equals(userInfo.path("id").asText())) {
                 throw new CustomException("Invalid Facebook token");
             }
 
-            String userId = (String) data.get("user_id");
-            String userInfoUrl = "https://graph.facebook.com/" + userId + "?fields=id,name,email&access_token=" + request.getToken();
-
-            ResponseEntity<Map> userResponse = restTemplate.getForEntity(userInfoUrl, Map.class);
-            Map<String, Object> userInfo = userResponse.getBody();
-
-            String email = (String) userInfo.get("email");
-            String name = (String) userInfo.get("name");
+            String email = userInfo.path("email").asText(null);
+            String name = userInfo.path("name").asText(null);
 
             User user = findOrCreateSocialUser(email, name != null ? name : "Facebook User");
             user.setVerified(true);
@@ -114,37 +118,11 @@ public class SocialAuthService {
 
     public AuthResponse appleLogin(SocialLoginRequest request) {
         try {
-            // Fetch Apple's public keys
-            String jwksUrl = "https://appleid.apple.com/auth/keys";
-            ResponseEntity<Map> jwksResponse = restTemplate.getForEntity(jwksUrl, Map.class);
-            List<Map<String, Object>> keys = (List<Map<String, Object>>) jwksResponse.getBody().get("keys");
-
-            // Extract kid from token header
-            String[] parts = request.getToken().split("\\.");
-            String headerJson = new String(Base64.getUrlDecoder().decode(parts[0]));
-            Map<String, String> header = objectMapper.readValue(headerJson, Map.class);
-            String kid = header.get("kid");
-
-            // Find matching key
-            Map<String, Object> key = keys.stream()
-                    .filter(k -> kid.equals(k.get("kid")))
-                    .findFirst()
-                    .orElseThrow(() -> new CustomException("Apple public key not found"));
-
-            BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode((String) key.get("n")));
-            BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode((String) key.get("e")));
-            PublicKey publicKey = KeyFactory.getInstance("RSA")
-                    .generatePublic(new RSAPublicKeySpec(modulus, exponent));
-
-            // Fixed for jjwt 0.12.6
-            Claims claims = Jwts.parser()
-                    .verifyWith(publicKey)
-                    .build()
-                    .parseSignedClaims(request.getToken())
-                    .getPayload();
+            // Key looked up by kid in the cached Apple JWKS, refetched only if Apple rotated keys
+            Claims claims = identityProviderKeys.verifyApple(request.getToken());
 
             // Apple audience is a list
-            List<String> audience = (List<String>) claims.getAudience();
+            Set<String> audience = claims.getAudience();
             if (audience == null || !audience.contains(appleClientId)) {
                 throw new CustomException("Invalid Apple audience");
             }
@@ -165,6 +143,10 @@ public class SocialAuthService {
         }
     }
 
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
     private User findOrCreateSocialUser(String email, String name) {
         return userRepository.findByEmail(email)
                 .orElseGet(() -> {
@@ -183,6 +165,8 @@ public class SocialAuthService {
     private AuthResponse buildAuthResponse(User user) {
         AuthResponse response = new AuthResponse();
         response.setToken(jwtUtil.generateToken(user));
+        response.setRefreshToken(refreshTokenService.issue(user));
+        response.setExpiresIn(jwtUtil.getExpirationSeconds());
         response.setRole(user.getRole().name());
         try {
             response.setDashboardUrl(otherServiceClient.getDashboardUrl(user.getRole().name()));
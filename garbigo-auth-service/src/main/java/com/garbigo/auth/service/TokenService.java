@@ -0,0 +1,134 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.exception.CustomException;
+import com.garbigo.auth.model.Token;
+import com.garbigo.auth.model.TokenType;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+// Verification and reset tokens. At most one live token per user and type: issuing replaces the
+// previous one, consuming removes it atomically, and the TTL index on expiresAt purges the rest.
+@Service
+public class TokenService {
+
+    private final MongoTemplate mongoTemplate;
+    private final SecureRandom random = new SecureRandom();
+
+    public TokenService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Returns the raw token to send to the user; only its hash is stored
+    public String issue(String userId, TokenType type, Duration validity) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Token token = new Token();
+        token.setId(hash(rawToken));
+        token.setUserId(userId);
+        token.setType(type);
+        token.setExpiresAt(new Date(System.currentTimeMillis() + validity.toMillis()));
+
+        Query previous = new Query(Criteria.where("userId").is(userId).and("type").is(type));
+        for (int attempt = 0; ; attempt++) {
+            mongoTemplate.remove(previous, Token.class);
+            try {
+                mongoTemplate.insert(token);
+                return rawToken;
+            } catch (DuplicateKeyException e) {
+                // A concurrent issue for the same user and type won the race; replace it
+                if (attempt == 2) {
+                    throw new CustomException("Could not issue token, please retry");
+                }
+            }
+        }
+    }
+
+    // Single use: the token is removed in the same operation that validates it
+    public String consume(String rawToken, TokenType type) {
+        if (rawToken == null || rawToken.isBlank()) {
+            throw new CustomException("Invalid or expired token");
+        }
+        Query query = new Query(Criteria.where("_id").is(hash(rawToken))
+                .and("type").is(type)
+                .and("expiresAt").gt(new Date()));
+        Token token = mongoTemplate.findAndRemove(query, Token.class);
+        if (token == null) {
+            throw new CustomException("Invalid or expired token");
+        }
+        return token.getUserId();
+    }
+
+    // Converts tokens from the old schema (raw value in 'token', long 'expiry'): unexpired ones are
+    // re-keyed by hash, keeping only the newest per user and type; everything else is dropped.
+    @PostConstruct
+    void migrateLegacyTokens() {
+        String collection = mongoTemplate.getCollectionName(Token.class);
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+        for (IndexInfo index : indexOps.getIndexInfo()) {
+            // A unique index on the removed field would reject every new document
+            if (index.isIndexForFields(List.of("token"))) {
+                indexOps.dropIndex(index.getName());
+            }
+        }
+
+        Query legacy = new Query(Criteria.where("expiresAt").exists(false));
+        Query live = new Query(Criteria.where("expiresAt").exists(false).and("expiry").gt(System.currentTimeMillis()))
+                .with(Sort.by(Sort.Direction.DESC, "expiry"));
+        List<Document> unexpired = mongoTemplate.find(live, Document.class, collection);
+        long removed = mongoTemplate.remove(legacy, collection).getDeletedCount();
+        if (removed == 0) {
+            return;
+        }
+
+        Set<String> seen = new HashSet<>();
+        List<Document> migrated = new ArrayList<>();
+        for (Document old : unexpired) {
+            String userId = old.getString("userId");
+            String type = old.getString("type");
+            String rawToken = old.getString("token");
+            if (userId == null || type == null || rawToken == null || !seen.add(userId + ":" + type)) {
+                continue;
+            }
+            migrated.add(new Document("_id", hash(rawToken))
+                    .append("userId", userId)
+                    .append("type", type)
+                    .append("expiresAt", new Date(old.getLong("expiry"))));
+        }
+        if (!migrated.isEmpty()) {
+            mongoTemplate.getCollection(collection).insertMany(migrated);
+        }
+        System.out.println("Migrated " + migrated.size() + " of " + removed + " legacy tokens");
+    }
+
+    static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
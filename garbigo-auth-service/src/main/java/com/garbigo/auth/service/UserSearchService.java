@@ -0,0 +1,190 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.dto.UserDto;
+import com.garbigo.auth.dto.UserPage;
+import com.garbigo.auth.exception.CustomException;
+import com.garbigo.auth.util.SearchTerms;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// User search over the indexed, normalized searchTerms array. Results are ranked in two tiers:
+// users whose terms equal every query token, then users whose terms start with every token.
+// Each tier is keyset-paginated on _id; cursors look like "e:<id>" or "p:<id>". Both tiers match by
+// equality (the prefix tier on searchPrefixes), so the {field, _id} indexes return rows already in
+// _id order; a range scan over a multikey array would need a blocking sort instead.
+@Service
+public class UserSearchService {
+
+    private static final String USERS_COLLECTION = "users";
+    private static final String EXACT_TIER = "e";
+    private static final String PREFIX_TIER = "p";
+    private static final int BACKFILL_BATCH = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final int minPrefixLength;
+    private final Duration maxTime;
+
+    public UserSearchService(MongoTemplate mongoTemplate,
+                             @Value("${users.search.min-prefix-length:2}") int minPrefixLength,
+                             @Value("${users.search.max-time-millis:2000}") long maxTimeMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.minPrefixLength = minPrefixLength;
+        this.maxTime = Duration.ofMillis(maxTimeMillis);
+    }
+
+    public UserPage search(String search, String cursor, int pageSize) {
+        List<String> tokens = queryTokens(search);
+
+        String tier = EXACT_TIER;
+        ObjectId after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.indexOf(':');
+            String id = separator > 0 ? cursor.substring(separator + 1) : "";
+            tier = separator > 0 ? cursor.substring(0, separator) : "";
+            if (!(EXACT_TIER.equals(tier) || PREFIX_TIER.equals(tier)) || !ObjectId.isValid(id)) {
+                throw new CustomException("Invalid cursor");
+            }
+            after = new ObjectId(id);
+        }
+
+        List<UserDto> users = new ArrayList<>(pageSize);
+        if (EXACT_TIER.equals(tier)) {
+            List<UserDto> exact = find(exactCriteria(tokens), after, pageSize + 1);
+            if (exact.size() > pageSize) {
+                users.addAll(exact.subList(0, pageSize));
+                return new UserPage(users, EXACT_TIER + ":" + users.get(pageSize - 1).getId());
+            }
+            users.addAll(exact);
+            after = null;
+        }
+
+        int remaining = pageSize - users.size();
+        if (remaining == 0) {
+            // Exact tier filled the page exactly; the prefix tier starts on the next one
+            boolean more = mongoTemplate.exists(new Query(prefixOnlyCriteria(tokens)).maxTime(maxTime), USERS_COLLECTION);
+            return new UserPage(users, more ? EXACT_TIER + ":" + users.get(pageSize - 1).getId() : null);
+        }
+        List<UserDto> prefix = find(prefixOnlyCriteria(tokens), after, remaining + 1);
+        String nextCursor = null;
+        if (prefix.size() > remaining) {
+            prefix = prefix.subList(0, remaining);
+            nextCursor = PREFIX_TIER + ":" + prefix.get(remaining - 1).getId();
+        }
+        users.addAll(prefix);
+        return new UserPage(users, nextCursor);
+    }
+
+    // Unranked match of both tiers, for exports
+    public Criteria matchCriteria(String search) {
+        return prefixCriteria(queryTokens(search));
+    }
+
+    // Fills searchTerms and searchPrefixes on documents written before the fields existed; new writes get them
+    // from UserSearchTermsCallback. Runs off the startup thread so readiness is not delayed.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        Thread backfill = new Thread(() -> {
+            try {
+                long updated = backfill();
+                if (updated > 0) {
+                    System.out.println("Backfilled search terms for " + updated + " users");
+                }
+            } catch (Exception e) {
+                System.err.println("User search backfill failed: " + e.getMessage());
+            }
+        }, "user-search-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    public long backfill() {
+        Query missing = new Query(Criteria.where("searchPrefixes").exists(false));
+        missing.fields().include("email", "firstName", "middleName", "lastName");
+        missing.cursorBatchSize(BACKFILL_BATCH);
+
+        long updated = 0;
+        BulkOperations bulk = null;
+        int pending = 0;
+        try (Stream<Document> users = mongoTemplate.stream(missing, Document.class, USERS_COLLECTION)) {
+            for (Document user : (Iterable<Document>) users::iterator) {
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, USERS_COLLECTION);
+                }
+                List<String> terms = SearchTerms.of(user.getString("email"),
+                        user.getString("firstName"), user.getString("middleName"), user.getString("lastName"));
+                bulk.updateOne(new Query(Criteria.where("_id").is(user.get("_id"))),
+                        new Update().set("searchTerms", terms).set("searchPrefixes", SearchTerms.prefixes(terms)));
+                if (++pending == BACKFILL_BATCH) {
+                    updated += bulk.execute().getModifiedCount();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulk != null) {
+            updated += bulk.execute().getModifiedCount();
+        }
+        return updated;
+    }
+
+    private List<UserDto> find(Criteria criteria, ObjectId after, int limit) {
+        if (after != null) {
+            criteria = new Criteria().andOperator(criteria, Criteria.where("_id").gt(after));
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit)
+                .maxTime(maxTime);
+        query.fields().include(UserDto.PROJECTED_FIELDS);
+        return mongoTemplate.find(query, UserDto.class, USERS_COLLECTION);
+    }
+
+    private List<String> queryTokens(String search) {
+        List<String> tokens = SearchTerms.tokens(search);
+        if (tokens.isEmpty()) {
+            throw new CustomException("Search must contain letters or digits");
+        }
+        return tokens;
+    }
+
+    private Criteria exactCriteria(List<String> tokens) {
+        return Criteria.where("searchTerms").all(tokens);
+    }
+
+    // Tokens shorter than minPrefixLength only match whole terms, so a one-letter query cannot
+    // match a large part of the collection. Tokens longer than the indexed prefixes match on their
+    // leading MAX_PREFIX_LENGTH characters and are then checked against the full terms.
+    private Criteria prefixCriteria(List<String> tokens) {
+        List<Criteria> perToken = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            if (token.length() < minPrefixLength) {
+                perToken.add(Criteria.where("searchTerms").is(token));
+            } else if (token.length() <= SearchTerms.MAX_PREFIX_LENGTH) {
+                perToken.add(Criteria.where("searchPrefixes").is(token));
+            } else {
+                perToken.add(Criteria.where("searchPrefixes").is(token.substring(0, SearchTerms.MAX_PREFIX_LENGTH)));
+                perToken.add(Criteria.where("searchTerms").regex(SearchTerms.prefixRegex(token)));
+            }
+        }
+        return new Criteria().andOperator(perToken);
+    }
+
+    private Criteria prefixOnlyCriteria(List<String> tokens) {
+        return new Criteria().andOperator(prefixCriteria(tokens), new Criteria().norOperator(exactCriteria(tokens)));
+    }
+}
@@ -1,34 +1,65 @@
 package com.garbigo.auth.service;
 
 import com.cloudinary.Cloudinary;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.garbigo.auth.dto.ProfileUpdateRequest;
 import com.garbigo.auth.dto.UserDto;
+import com.garbigo.auth.dto.UserPage;
 import com.garbigo.auth.exception.CustomException;
 import com.garbigo.auth.model.User;
 import com.garbigo.auth.repository.UserRepository;
+import com.garbigo.auth.security.TokenRevocationRegistry;
+import com.garbigo.auth.security.VerifiedTokenCache;
+import org.bson.types.ObjectId;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
 
+    private static final String USERS_COLLECTION = "users";
+
     private final UserRepository userRepository;
     private final Cloudinary cloudinary;
     private final PasswordEncoder passwordEncoder;
     private final ModelMapper modelMapper = new ModelMapper();
     private final AuthService authService;
-
-    public UserService(UserRepository userRepository, Cloudinary cloudinary, PasswordEncoder passwordEncoder, AuthService authService) {
+    private final TokenRevocationRegistry revocationRegistry;
+    private final VerifiedTokenCache tokenCache;
+    private final MongoTemplate mongoTemplate;
+    private final UserSearchService userSearchService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${users.listing.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${users.listing.max-page-size:500}")
+    private int maxPageSize;
+
+    public UserService(UserRepository userRepository, Cloudinary cloudinary, PasswordEncoder passwordEncoder,
+                       AuthService authService, TokenRevocationRegistry revocationRegistry,
+                       VerifiedTokenCache tokenCache, MongoTemplate mongoTemplate,
+                       UserSearchService userSearchService) {
         this.userRepository = userRepository;
         this.cloudinary = cloudinary;
         this.passwordEncoder = passwordEncoder;
         this.authService = authService;
+        this.revocationRegistry = revocationRegistry;
+        this.tokenCache = tokenCache;
+        this.mongoTemplate = mongoTemplate;
+        this.userSearchService = userSearchService;
     }
 
     public UserDto updateProfile(ProfileUpdateRequest request) {
@@ -55,14 +86,54 @@ public class UserService {
         return modelMapper.map(user, UserDto.class);
     }
 
-    public List<UserDto> getAllUsers(String search) {
-        List<User> users = search == null || search.isBlank()
-                ? userRepository.findAll()
-                : userRepository.searchUsers(search);
+    // Keyset pagination on _id: each page is an index range scan, however deep the cursor is
+    public UserPage getUsers(String search, String after, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        if (search != null && !search.isBlank()) {
+            return userSearchService.search(search, after, pageSize);
+        }
+
+        Criteria criteria = new Criteria();
+        if (after != null && !after.isBlank()) {
+            if (!ObjectId.isValid(after)) {
+                throw new CustomException("Invalid cursor");
+            }
+            criteria = new Criteria().andOperator(criteria, Criteria.where("_id").gt(new ObjectId(after)));
+        }
+
+        Query query = projectedUserQuery(criteria).limit(pageSize + 1);
+        List<UserDto> users = mongoTemplate.find(query, UserDto.class, USERS_COLLECTION);
+
+        String nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = users.get(pageSize - 1).getId();
+        }
+        return new UserPage(users, nextCursor);
+    }
+
+    // NDJSON export read from a cursor, one document at a time
+    public StreamingResponseBody exportUsers(String search) {
+        Query query = projectedUserQuery(searchCriteria(search)).cursorBatchSize(1000);
+        return out -> {
+            try (Stream<UserDto> users = mongoTemplate.stream(query, UserDto.class, USERS_COLLECTION)) {
+                for (UserDto user : (Iterable<UserDto>) users::iterator) {
+                    out.write(objectMapper.writeValueAsBytes(user));
+                    out.write('\n');
+                }
+            }
+            out.flush();
+        };
+    }
+
+    private Query projectedUserQuery(Criteria criteria) {
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id"));
+        query.fields().include(UserDto.PROJECTED_FIELDS);
+        return query;
+    }
 
-        return users.stream()
-                .map(u -> modelMapper.map(u, UserDto.class))
-                .collect(Collectors.toList());
+    private Criteria searchCriteria(String search) {
+        return search == null || search.isBlank() ? new Criteria() : userSearchService.matchCriteria(search);
     }
 
     public UserDto createUser(User user) {
@@ -82,14 +153,25 @@ public class UserService {
         if (update.getLastName() != null) user.setLastName(update.getLastName());
         if (update.getPhoneNumber() != null) user.setPhoneNumber(update.getPhoneNumber());
         if (update.getHomeAddress() != null) user.setHomeAddress(update.getHomeAddress());
+        // The role travels in stateless tokens, so changing it must end tokens carrying the old one
+        boolean roleChanged = update.getRole() != null && update.getRole() != user.getRole();
         if (update.getRole() != null) user.setRole(update.getRole());
 
-        userRepository.save(user);
+        if (roleChanged) {
+            revokeSessions(user);
+        } else {
+            userRepository.save(user);
+        }
         return modelMapper.map(user, UserDto.class);
     }
 
     public void deleteUser(String id) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new CustomException("User not found"));
         userRepository.deleteById(id);
+        // Nothing left to load, so only the revocation stops tokens already issued to the account
+        revocationRegistry.revoke(user.getId(), user.getTokenVersion() + 1);
+        tokenCache.invalidateUser(user.getId());
     }
 
     public void archiveUser(String id) {
@@ -119,8 +201,26 @@ public class UserService {
     private void updateUserStatus(String id, java.util.function.Consumer<User> action) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new CustomException("User not found"));
+        boolean wasUsable = user.isActive() && !user.isArchived();
+        boolean wasVerified = user.isVerified();
         action.accept(user);
+
+        // Deactivated, archived or unverified accounts must lose access even with unexpired stateless tokens
+        boolean revoke = (wasUsable && (!user.isActive() || user.isArchived())) || (wasVerified && !user.isVerified());
+        if (revoke) {
+            revokeSessions(user);
+        } else {
+            userRepository.save(user);
+        }
+    }
+
+    // Saves the user with a bumped token version and ends every token issued before it,
+    // as AuthService does after a password change
+    private void revokeSessions(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
+        revocationRegistry.revoke(user.getId(), user.getTokenVersion());
+        tokenCache.invalidateUser(user.getId());
     }
 
     private User getCurrentUser() {
@@ -128,6 +228,9 @@ public class UserService {
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new CustomException("No authenticated user");
         }
-        return (User) authentication.getPrincipal();
+        // The principal may be a claims snapshot, so load the full document before modifying it
+        User principal = (User) authentication.getPrincipal();
+        return userRepository.findById(principal.getId())
+                .orElseThrow(() -> new CustomException("User not found"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.garbigo.auth.util;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+
+// Buffers small JSON bodies so RateLimitInterceptor can read the email before the controller does.
+// Bodies without a declared length (chunked) are read up to the same cap; a larger one is passed on
+// unchanged, with the bytes already read replayed in front of the rest of the stream.
+@Component
+public class CachedBodyFilter extends OncePerRequestFilter {
+
+    private static final int MAX_CACHED_BODY = 16 * 1024;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String contentType = request.getContentType();
+        long length = request.getContentLengthLong();
+        if (contentType != null && contentType.startsWith(MediaType.APPLICATION_JSON_VALUE)
+                && length != 0 && length <= MAX_CACHED_BODY) {
+            ServletInputStream original = request.getInputStream();
+            byte[] head = original.readNBytes(MAX_CACHED_BODY + 1);
+            request = head.length <= MAX_CACHED_BODY
+                    ? new CachedBodyRequest(request, head, null)
+                    : new CachedBodyRequest(request, head, original);
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    public static byte[] cachedBody(HttpServletRequest request) {
+        while (request instanceof HttpServletRequestWrapper wrapper) {
+            if (wrapper instanceof CachedBodyRequest cached) {
+                return cached.remainder == null ? cached.body : null;
+            }
+            request = (HttpServletRequest) wrapper.getRequest();
+        }
+        return null;
+    }
+
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+        // Unread rest of an oversized body; null when the whole body is in memory
+        private final ServletInputStream remainder;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body, ServletInputStream remainder) {
+            super(request);
+            this.body = body;
+            this.remainder = remainder;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream head = new ByteArrayInputStream(body);
+            InputStream in = remainder == null ? head : new SequenceInputStream(head, remainder);
+            return new ServletInputStream() {
+                private boolean finished;
+
+                @Override
+                public boolean isFinished() {
+                    return finished || (remainder == null && head.available() == 0);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The buffered bytes are always available, so the listener can be driven immediately
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() throws IOException {
+                    return track(in.read());
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return track(in.read(b, off, len));
+                }
+
+                private int track(int result) {
+                    if (result == -1) {
+                        finished = true;
+                    }
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.garbigo.auth.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Template parsed once into alternating literal text and {{variable}} slots. Rendering is a
+// single pass of appends; variable values are HTML-escaped.
+public final class CompiledTemplate {
+
+    private static final Pattern VARIABLE_NAME = Pattern.compile("[A-Za-z][A-Za-z0-9_]*");
+
+    // literals.length == variables.length + 1
+    private final String[] literals;
+    private final String[] variables;
+    private final int literalLength;
+
+    private CompiledTemplate(String[] literals, String[] variables) {
+        this.literals = literals;
+        this.variables = variables;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static CompiledTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                literals.add(source.substring(position));
+                break;
+            }
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed {{ at offset " + open);
+            }
+            String name = source.substring(open + 2, close).trim();
+            if (!VARIABLE_NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("Invalid template variable '" + name + "' at offset " + open);
+            }
+            literals.add(source.substring(position, open));
+            variables.add(name);
+            position = close + 2;
+        }
+        return new CompiledTemplate(literals.toArray(new String[0]), variables.toArray(new String[0]));
+    }
+
+    public int estimatedLength() {
+        return literalLength + variables.length * 32;
+    }
+
+    public void renderTo(StringBuilder out, Map<String, String> model) {
+        out.append(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            String value = model.get(variables[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing template variable '" + variables[i] + "'");
+            }
+            appendEscaped(out, value);
+            out.append(literals[i + 1]);
+        }
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.garbigo.auth.util;
+
+import java.util.Arrays;
+
+// Iterative Douglas-Peucker line simplification over parallel coordinate arrays.
+// Distances use a local equirectangular projection, which is accurate at route scale.
+public final class DouglasPeucker {
+
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private DouglasPeucker() {
+    }
+
+    // Marks the points to keep in keep[0..count) and returns how many were kept
+    public static int simplify(double[] latitudes, double[] longitudes, int count, double toleranceMeters,
+                               boolean[] keep) {
+        if (count <= 2) {
+            for (int i = 0; i < count; i++) {
+                keep[i] = true;
+            }
+            return count;
+        }
+        for (int i = 0; i < count; i++) {
+            keep[i] = false;
+        }
+        keep[0] = true;
+        keep[count - 1] = true;
+        int kept = 2;
+
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+
+            double maxDistance = -1;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distance = distanceToSegment(latitudes, longitudes, i, first, last);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+
+            if (farthest >= 0 && maxDistance > toleranceMeters) {
+                keep[farthest] = true;
+                kept++;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+        return kept;
+    }
+
+    private static double distanceToSegment(double[] latitudes, double[] longitudes, int point, int start, int end) {
+        double cosLat = Math.cos(Math.toRadians(latitudes[start]));
+        double px = (longitudes[point] - longitudes[start]) * cosLat * METERS_PER_DEGREE;
+        double py = (latitudes[point] - latitudes[start]) * METERS_PER_DEGREE;
+        double ex = (longitudes[end] - longitudes[start]) * cosLat * METERS_PER_DEGREE;
+        double ey = (latitudes[end] - latitudes[start]) * METERS_PER_DEGREE;
+
+        double lengthSquared = ex * ex + ey * ey;
+        if (lengthSquared == 0) {
+            return Math.hypot(px, py);
+        }
+        double t = Math.max(0, Math.min(1, (px * ex + py * ey) / lengthSquared));
+        return Math.hypot(px - t * ex, py - t * ey);
+    }
+}
@@ -0,0 +1,101 @@
+package com.garbigo.auth.util;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+// Uniform latitude/longitude grid mapping cells to the registry slots currently inside them.
+// Membership only changes when a collector crosses a cell boundary, not on every ping.
+public class GeoGrid {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final double cellDegrees;
+    private final Map<Long, Set<Integer>> cells = new ConcurrentHashMap<>();
+
+    public GeoGrid(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+    }
+
+    public long cellOf(double latitude, double longitude) {
+        return cellKey(row(latitude), column(longitude));
+    }
+
+    public void add(long cell, int slot) {
+        cells.computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet()).add(slot);
+    }
+
+    public void remove(long cell, int slot) {
+        cells.computeIfPresent(cell, (c, members) -> {
+            members.remove(slot);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    public void move(long from, long to, int slot) {
+        if (from != to) {
+            add(to, slot);
+            remove(from, slot);
+        }
+    }
+
+    // Visits every slot in cells intersecting the bounding box of the given radius
+    public void forEachWithin(double latitude, double longitude, double radiusKm, IntConsumer visitor) {
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        double lonDelta = radiusKm / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(latitude))));
+        int minRow = row(latitude - latDelta);
+        int maxRow = row(latitude + latDelta);
+        int minColumn = column(longitude - lonDelta);
+        int maxColumn = column(longitude + lonDelta);
+
+        // A box wider than the populated grid is cheaper to answer by walking the occupied cells
+        long boxCells = (long) (maxRow - minRow + 1) * (maxColumn - minColumn + 1);
+        if (boxCells > cells.size()) {
+            cells.forEach((cell, members) -> {
+                int row = (int) (cell >> 32);
+                int column = (int) (long) cell;
+                if (row >= minRow && row <= maxRow && column >= minColumn && column <= maxColumn) {
+                    members.forEach(visitor::accept);
+                }
+            });
+            return;
+        }
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                Set<Integer> members = cells.get(cellKey(row, column));
+                if (members != null) {
+                    members.forEach(visitor::accept);
+                }
+            }
+        }
+    }
+
+    // Smallest distance covered by one cell, used to bound ring searches
+    public double cellSizeKm(double latitude) {
+        return cellDegrees * KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
@@ -0,0 +1,42 @@
+package com.garbigo.auth.util;
+
+// Google encoded-polyline format: each value is delta-encoded against the previous one,
+// zig-zagged and written as 5-bit chunks in printable ASCII.
+public final class PolylineEncoder {
+
+    private static final double PRECISION = 1e5;
+
+    private PolylineEncoder() {
+    }
+
+    public static void encodePoints(double[] latitudes, double[] longitudes, int count, StringBuilder out) {
+        long previousLat = 0;
+        long previousLon = 0;
+        for (int i = 0; i < count; i++) {
+            long lat = Math.round(latitudes[i] * PRECISION);
+            long lon = Math.round(longitudes[i] * PRECISION);
+            encodeSigned(lat - previousLat, out);
+            encodeSigned(lon - previousLon, out);
+            previousLat = lat;
+            previousLon = lon;
+        }
+    }
+
+    // Same scheme for integer series such as epoch seconds
+    public static void encodeDeltas(long[] values, int count, StringBuilder out) {
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            encodeSigned(values[i] - previous, out);
+            previous = values[i];
+        }
+    }
+
+    public static void encodeSigned(long value, StringBuilder out) {
+        long zigzag = value < 0 ? ~(value << 1) : value << 1;
+        while (zigzag >= 0x20) {
+            out.append((char) ((0x20 | (zigzag & 0x1f)) + 63));
+            zigzag >>>= 5;
+        }
+        out.append((char) (zigzag + 63));
+    }
+}
@@ -0,0 +1,32 @@
+package com.garbigo.auth.util;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Declares a rate-limit budget for a controller method, enforced by RateLimitInterceptor before the handler runs.
+// Budgets can be overridden per policy name with rate-limit.policies.<name>.requests / .window-in-seconds.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(RateLimits.class)
+public @interface RateLimit {
+
+    String name();
+
+    Key key() default Key.IP;
+
+    // -1 falls back to rate-limit.requests-per-minute / rate-limit.window-in-seconds
+    int requests() default -1;
+
+    int windowInSeconds() default -1;
+
+    enum Key {
+        IP,
+        // "email" from the JSON body or query string; skipped when absent
+        EMAIL,
+        // Authenticated user id; falls back to IP for anonymous requests
+        USER
+    }
+}
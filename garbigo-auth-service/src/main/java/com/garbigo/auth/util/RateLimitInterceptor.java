@@ -0,0 +1,139 @@
+package com.garbigo.auth.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbigo.auth.config.RateLimiterConfig.RateLimitProperties;
+import com.garbigo.auth.model.User;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Enforces @RateLimit policies before the controller runs and rejects with 429 + Retry-After
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties defaults;
+    private final Environment environment;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Resolved once per handler method
+    private final Map<Method, List<Policy>> policies = new ConcurrentHashMap<>();
+
+    public RateLimitInterceptor(RateLimiter rateLimiter, RateLimitProperties defaults, Environment environment) {
+        this.rateLimiter = rateLimiter;
+        this.defaults = defaults;
+        this.environment = environment;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+
+        List<Policy> methodPolicies = policies.computeIfAbsent(handlerMethod.getMethod(), this::resolvePolicies);
+        for (Policy policy : methodPolicies) {
+            String identity = identify(policy.key(), request);
+            RateLimitResult result = rateLimiter.tryAcquire(
+                    "rate_limit:" + policy.name() + ":" + identity, policy.requests(), policy.windowInSeconds());
+            if (!result.allowed()) {
+                reject(response, result.retryAfterSeconds());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Policy> resolvePolicies(Method method) {
+        return AnnotatedElementUtils.findMergedRepeatableAnnotations(method, RateLimit.class).stream()
+                .map(annotation -> {
+                    String prefix = "rate-limit.policies." + annotation.name() + ".";
+                    int requests = annotation.requests() > 0 ? annotation.requests() : defaults.requestsPerMinute();
+                    int window = annotation.windowInSeconds() > 0 ? annotation.windowInSeconds() : defaults.windowInSeconds();
+                    return new Policy(annotation.name(), annotation.key(),
+                            environment.getProperty(prefix + "requests", Integer.class, requests),
+                            environment.getProperty(prefix + "window-in-seconds", Integer.class, window));
+                })
+                .toList();
+    }
+
+    private String identify(RateLimit.Key key, HttpServletRequest request) {
+        return switch (key) {
+            case IP -> "ip:" + clientIp(request);
+            case EMAIL -> {
+                // No readable email still counts against the caller's address, never skips the policy
+                String email = email(request);
+                yield email != null ? "email:" + email : "ip:" + clientIp(request);
+            }
+            case USER -> {
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                yield authentication != null && authentication.getPrincipal() instanceof User user
+                        ? "user:" + user.getId()
+                        : "ip:" + clientIp(request);
+            }
+        };
+    }
+
+    private String email(HttpServletRequest request) {
+        String email = request.getParameter("email");
+        if (email == null) {
+            byte[] body = CachedBodyFilter.cachedBody(request);
+            if (body != null) {
+                try {
+                    JsonNode node = objectMapper.readTree(body).get("email");
+                    email = node != null && node.isTextual() ? node.asText() : null;
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+        }
+        return email == null || email.isBlank() ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write("Too many requests. Please try again in " + retryAfterSeconds + " seconds.");
+    }
+
+    public static String clientIp(HttpServletRequest request) {
+        // Try to get IP from request headers (for proxy environments)
+        String ip = request.getHeader("X-Forwarded-For");
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeader("Proxy-Client-IP");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeader("WL-Proxy-Client-IP");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getRemoteAddr();
+        }
+
+        // For multiple IPs (behind proxy), take the first one
+        if (ip != null && ip.contains(",")) {
+            ip = ip.split(",")[0].trim();
+        }
+
+        return ip;
+    }
+
+    private record Policy(String name, RateLimit.Key key, int requests, int windowInSeconds) {}
+}
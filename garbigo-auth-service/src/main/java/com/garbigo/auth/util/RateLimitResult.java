@@ -0,0 +1,8 @@
+package com.garbigo.auth.util;
+
+public record RateLimitResult(boolean allowed, long remaining, long retryAfterMillis) {
+
+    public long retryAfterSeconds() {
+        return Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+}
@@ -1,64 +1,279 @@
 package com.garbigo.auth.util;
 
+import com.garbigo.auth.config.RateLimiterConfig.LocalTier;
 import com.garbigo.auth.config.RateLimiterConfig.RateLimitProperties;
-import com.garbigo.auth.exception.CustomException;
-import jakarta.servlet.http.HttpServletRequest;
-import org.redisson.api.RMapCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class RateLimiter {
 
-    private final RMapCache<String, Integer> rateLimitCache;
-    private final RateLimitProperties rateLimitProperties;
-    private final HttpServletRequest request;
+    // Token bucket refilled continuously at capacity/window. ARGV[4] carries requests the local tier
+    // already admitted; they are always deducted before the strict check of ARGV[3]. Everything runs
+    // in one atomic script, so concurrent requests cannot overshoot and each sync is a single round trip.
+    private static final String TOKEN_BUCKET_SCRIPT = """
+            local capacity = tonumber(ARGV[1])
+            local window_ms = tonumber(ARGV[2])
+            local requested = tonumber(ARGV[3])
+            local admitted = tonumber(ARGV[4])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1])
+            local ts = tonumber(state[2])
+            if tokens == nil or ts == nil then
+                tokens = capacity
+                ts = now
+            end
+            local refill_per_ms = capacity / window_ms
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * refill_per_ms)
+            tokens = math.max(0, tokens - admitted)
+            local allowed = 0
+            local retry_after = 0
+            if tokens >= requested then
+                tokens = tokens - requested
+                allowed = 1
+            else
+                retry_after = math.ceil((requested - tokens) / refill_per_ms)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], window_ms)
+            return {allowed, math.floor(tokens), retry_after}
+            """;
 
-    public RateLimiter(RMapCache<String, Integer> rateLimitCache,
+    private final RScript script;
+    private final LocalTier localTier;
+
+    // Local tier: one bucket per key, each guarded by its own lock
+    private final Map<String, LocalBucket> localBuckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean purging = new AtomicBoolean();
+    private volatile long redisUnavailableUntil;
+
+    private final Counter localDecisions;
+    private final Counter redisDecisions;
+    private final Counter degradedDecisions;
+
+    public RateLimiter(RedissonClient redissonClient,
                        RateLimitProperties rateLimitProperties,
-                       HttpServletRequest request) {
-        this.rateLimitCache = rateLimitCache;
-        this.rateLimitProperties = rateLimitProperties;
-        this.request = request;
+                       MeterRegistry meterRegistry) {
+        this.script = redissonClient.getScript(StringCodec.INSTANCE);
+        this.localTier = rateLimitProperties.local();
+
+        this.localDecisions = meterRegistry.counter("auth.rate-limit.decisions", "tier", "local");
+        this.redisDecisions = meterRegistry.counter("auth.rate-limit.decisions", "tier", "redis");
+        this.degradedDecisions = meterRegistry.counter("auth.rate-limit.decisions", "tier", "local-only");
+        Gauge.builder("auth.rate-limit.local.keys", localBuckets, Map::size).register(meterRegistry);
     }
 
-    public void checkRateLimit() {
-        String key = getClientIdentifier();
-        
-        // Use Redisson's atomic operations for thread safety
-        Integer currentCount = rateLimitCache.get(key);
-        
-        if (currentCount == null) {
-            // First request in the window
-            rateLimitCache.put(key, 1, rateLimitProperties.windowInSeconds(), TimeUnit.SECONDS);
-        } else if (currentCount >= rateLimitProperties.requestsPerMinute()) {
-            throw new CustomException("Too many requests. Please try again in " + 
-                                     rateLimitProperties.windowInSeconds() + " seconds.");
-        } else {
-            // Increment the count
-            rateLimitCache.put(key, currentCount + 1, rateLimitProperties.windowInSeconds(), TimeUnit.SECONDS);
+    public RateLimitResult tryAcquire(String key, int limit, int windowInSeconds) {
+        if (!localTier.enabled()) {
+            return redisAcquire(key, limit, windowInSeconds, 0);
+        }
+
+        LocalBucket bucket = localBucket(key, windowInSeconds);
+        if (bucket == null) {
+            // Local tier is full of live keys; fall through to Redis
+            return redisAcquire(key, limit, windowInSeconds, 0);
+        }
+
+        long now = System.currentTimeMillis();
+        // A lock rather than a monitor: the Redis round trip below would pin a virtual thread
+        bucket.lock.lock();
+        try {
+            if (bucket.evicted) {
+                // Purged while this thread waited for the lock; continue with the key's new bucket
+                return tryAcquire(key, limit, windowInSeconds);
+            }
+            bucket.lastUsedMillis = now;
+            bucket.windowMillis = windowInSeconds * 1000L;
+            bucket.limit = limit;
+
+            if (now < redisUnavailableUntil) {
+                degradedDecisions.increment();
+                return bucket.acquireLocally(limit, windowInSeconds, now);
+            }
+
+            // Redis already denied this key and no token refills before then; answer without a round trip
+            if (now < bucket.deniedUntilMillis) {
+                localDecisions.increment();
+                return new RateLimitResult(false, 0, bucket.deniedUntilMillis - now);
+            }
+
+            // Far below quota: admit locally and report the batch to Redis later
+            long headroom = bucket.knownRemaining - bucket.pending;
+            if (bucket.knownRemaining >= 0
+                    && headroom > localTier.maxOvershootPerNode()
+                    && bucket.pending < localTier.maxOvershootPerNode()
+                    && now - bucket.lastSyncMillis < localTier.syncIntervalMillis()) {
+                bucket.pending++;
+                localDecisions.increment();
+                return new RateLimitResult(true, headroom - 1, 0);
+            }
+
+            // Near quota, batch full or stale: report pending admissions and decide this request in Redis
+            try {
+                RateLimitResult result = redisAcquire(key, limit, windowInSeconds, bucket.pending);
+                bucket.pending = 0;
+                bucket.knownRemaining = result.remaining();
+                bucket.lastSyncMillis = now;
+                bucket.deniedUntilMillis = result.allowed() ? 0 : now + result.retryAfterMillis();
+                return result;
+            } catch (RedisException e) {
+                redisUnavailableUntil = now + localTier.redisRetryMillis();
+                System.err.println("Rate limiter falling back to local-only limiting: " + e.getMessage());
+                degradedDecisions.increment();
+                return bucket.acquireLocally(limit, windowInSeconds, now);
+            }
+        } finally {
+            bucket.lock.unlock();
         }
     }
 
-    private String getClientIdentifier() {
-        // Try to get IP from request headers (for proxy environments)
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
+    // Reports locally admitted requests every sync interval, so Redis and the other nodes see them
+    // even when the key receives no further traffic here
+    @Scheduled(fixedDelayString = "${rate-limit.local.sync-interval-millis:1000}")
+    public void flushPending() {
+        if (!localTier.enabled() || System.currentTimeMillis() < redisUnavailableUntil) {
+            return;
         }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
+        localBuckets.forEach((key, bucket) -> {
+            if (bucket.pending == 0 || !bucket.lock.tryLock()) {
+                return;
+            }
+            try {
+                if (bucket.pending > 0 && !bucket.evicted) {
+                    redisFlush(key, bucket);
+                }
+            } catch (RedisException e) {
+                // Kept pending; reported by the next flush or request
+            } finally {
+                bucket.lock.unlock();
+            }
+        });
+    }
+
+    // Deducts locally admitted requests without deciding a new one
+    private void redisFlush(String key, LocalBucket bucket) {
+        List<Object> reply = script.eval(RScript.Mode.READ_WRITE, TOKEN_BUCKET_SCRIPT, RScript.ReturnType.MULTI,
+                List.<Object>of(key), String.valueOf(bucket.limit), String.valueOf(bucket.windowMillis), "0",
+                String.valueOf(bucket.pending));
+        bucket.pending = 0;
+        bucket.knownRemaining = ((Number) reply.get(1)).longValue();
+        bucket.lastSyncMillis = System.currentTimeMillis();
+    }
+
+    private RateLimitResult redisAcquire(String key, int limit, int windowInSeconds, int alreadyAdmitted) {
+        List<Object> reply = script.eval(RScript.Mode.READ_WRITE, TOKEN_BUCKET_SCRIPT, RScript.ReturnType.MULTI,
+                List.<Object>of(key), String.valueOf(limit), String.valueOf(windowInSeconds * 1000L), "1",
+                String.valueOf(alreadyAdmitted));
+        redisDecisions.increment();
+
+        return new RateLimitResult(
+                ((Number) reply.get(0)).longValue() == 1,
+                ((Number) reply.get(1)).longValue(),
+                ((Number) reply.get(2)).longValue());
+    }
+
+    private LocalBucket localBucket(String key, int windowInSeconds) {
+        LocalBucket bucket = localBuckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (localBuckets.size() >= localTier.maxKeys()) {
+            purgeIdleBuckets();
+            if (localBuckets.size() >= localTier.maxKeys()) {
+                return null;
+            }
         }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
+        return localBuckets.computeIfAbsent(key, k -> new LocalBucket(windowInSeconds * 1000L));
+    }
+
+    private void purgeIdleBuckets() {
+        if (!purging.compareAndSet(false, true)) {
+            return;
         }
-        
-        // For multiple IPs (behind proxy), take the first one
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
+        try {
+            // Refill makes buckets idle for a full window of their own policy indistinguishable from
+            // new ones. Admissions not yet reported are deducted in Redis first, so none go uncounted.
+            long now = System.currentTimeMillis();
+            localBuckets.forEach((key, bucket) -> {
+                if (now - bucket.lastUsedMillis < bucket.windowMillis || !bucket.lock.tryLock()) {
+                    return;
+                }
+                try {
+                    if (now - bucket.lastUsedMillis < bucket.windowMillis) {
+                        return;
+                    }
+                    if (bucket.pending > 0) {
+                        redisFlush(key, bucket);
+                    }
+                    bucket.evicted = true;
+                    localBuckets.remove(key, bucket);
+                } catch (RedisException e) {
+                    // Kept with its pending admissions; retried on the next purge
+                } finally {
+                    bucket.lock.unlock();
+                }
+            });
+        } finally {
+            purging.set(false);
+        }
+    }
+
+    private static final class LocalBucket {
+        final ReentrantLock lock = new ReentrantLock();
+
+        // Admitted locally but not yet deducted in Redis
+        int pending;
+        // Remaining tokens reported by the last Redis sync; -1 until the first sync.
+        // Refill only adds tokens, so a stale value is always conservative.
+        long knownRemaining = -1;
+        long lastSyncMillis;
+        // Redis denied the key until then; at least one token has to refill first
+        long deniedUntilMillis;
+        long lastUsedMillis;
+        // Policy of the last request, so purging and flushing use this key's own window
+        int limit;
+        long windowMillis;
+        // Set under the lock when the bucket is purged from the map
+        boolean evicted;
+
+        LocalBucket(long windowMillis) {
+            this.windowMillis = windowMillis;
+            this.lastUsedMillis = System.currentTimeMillis();
+        }
+
+        // Per-node token bucket used only while Redis is unreachable
+        double localTokens = -1;
+        long localRefillMillis;
+
+        RateLimitResult acquireLocally(int limit, int windowInSeconds, long now) {
+            double refillPerMilli = (double) limit / (windowInSeconds * 1000L);
+            if (localTokens < 0) {
+                localTokens = limit;
+            } else {
+                localTokens = Math.min(limit, localTokens + (now - localRefillMillis) * refillPerMilli);
+            }
+            localRefillMillis = now;
+
+            if (localTokens >= 1) {
+                localTokens -= 1;
+                return new RateLimitResult(true, (long) localTokens, 0);
+            }
+            return new RateLimitResult(false, 0, (long) Math.ceil((1 - localTokens) / refillPerMilli));
         }
-        
-        return "rate_limit:" + ip + ":" + System.currentTimeMillis() / (rateLimitProperties.windowInSeconds() * 1000);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.garbigo.auth.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Normalized search keys for users: lowercase, accents stripped, restricted to characters that
+// can never be regex metacharacters apart from '.' and '+', which prefixRegex escapes.
+public final class SearchTerms {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern DISALLOWED = Pattern.compile("[^a-z0-9@._+-]");
+    private static final Pattern SEPARATORS = Pattern.compile("\\s+");
+    private static final int MAX_QUERY_TOKENS = 5;
+    // Longest indexed prefix; longer query tokens match on this prefix and are refined by regex
+    public static final int MAX_PREFIX_LENGTH = 10;
+
+    private SearchTerms() {
+    }
+
+    public static List<String> of(String email, String... names) {
+        Set<String> terms = new LinkedHashSet<>();
+        String normalizedEmail = normalize(email);
+        if (!normalizedEmail.isEmpty()) {
+            terms.add(normalizedEmail);
+            int at = normalizedEmail.indexOf('@');
+            if (at > 0) {
+                terms.add(normalizedEmail.substring(0, at));
+            }
+        }
+        for (String name : names) {
+            addTokens(name, terms);
+        }
+        return new ArrayList<>(terms);
+    }
+
+    // Every leading substring of the terms up to MAX_PREFIX_LENGTH. A prefix search then becomes an
+    // equality match on a multikey index, which returns users in _id order without an in-memory sort.
+    public static List<String> prefixes(List<String> terms) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (String term : terms) {
+            for (int length = 1; length <= Math.min(term.length(), MAX_PREFIX_LENGTH); length++) {
+                prefixes.add(term.substring(0, length));
+            }
+        }
+        return new ArrayList<>(prefixes);
+    }
+
+    // Query tokens; every token has to match for a user to be returned
+    public static List<String> tokens(String query) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addTokens(query, tokens);
+        List<String> result = new ArrayList<>(tokens);
+        return result.size() > MAX_QUERY_TOKENS ? result.subList(0, MAX_QUERY_TOKENS) : result;
+    }
+
+    // Anchored, case-sensitive prefix so MongoDB can turn it into tight index bounds
+    public static String prefixRegex(String token) {
+        StringBuilder regex = new StringBuilder(token.length() + 4).append('^');
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '.' || c == '+') {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+        return regex.toString();
+    }
+
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return DISALLOWED.matcher(DIACRITICS.matcher(decomposed).replaceAll("")).replaceAll("");
+    }
+
+    private static void addTokens(String value, Set<String> into) {
+        if (value == null) {
+            return;
+        }
+        for (String part : SEPARATORS.split(value.trim())) {
+            String token = normalize(part);
+            if (!token.isEmpty()) {
+                into.add(token);
+            }
+        }
+    }
+}
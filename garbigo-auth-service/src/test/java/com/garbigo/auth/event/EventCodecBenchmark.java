@@ -0,0 +1,110 @@
+package com.garbigo.auth.event;
+
+import com.garbigo.auth.model.Role;
+import com.garbigo.auth.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Encode/decode cost of the event codecs against the Java serialization of the whole User
+// entity that RabbitTemplate used before. Payload sizes are printed before the run.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventCodecBenchmark {
+
+    private final JsonEventCodec json = new JsonEventCodec();
+    private final BinaryEventCodec binary = new BinaryEventCodec();
+    private final SimpleMessageConverter javaSerialization = new SimpleMessageConverter();
+
+    private User user;
+    private UserCreatedEvent event;
+    private byte[] jsonBody;
+    private byte[] binaryBody;
+    private Message javaMessage;
+
+    @Setup
+    public void setup() {
+        user = sampleUser();
+        event = UserCreatedEvent.from(user);
+        jsonBody = json.encode(event);
+        binaryBody = binary.encode(event);
+        javaMessage = javaSerialization.toMessage(user, new MessageProperties());
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() {
+        return json.encode(event);
+    }
+
+    @Benchmark
+    public Object jsonDecode() {
+        return json.decode(UserCreatedEvent.TYPE, UserCreatedEvent.SCHEMA_VERSION, jsonBody);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return binary.encode(event);
+    }
+
+    @Benchmark
+    public Object binaryDecode() {
+        return binary.decode(UserCreatedEvent.TYPE, UserCreatedEvent.SCHEMA_VERSION, binaryBody);
+    }
+
+    @Benchmark
+    public Message legacyJavaSerializationEncode() {
+        return javaSerialization.toMessage(user, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object legacyJavaSerializationDecode() {
+        return javaSerialization.fromMessage(javaMessage);
+    }
+
+    private static User sampleUser() {
+        User user = new User();
+        user.setId("64f1c2a9e4b0a1b2c3d4e5f6");
+        user.setUsername("wanjiru.kamau");
+        user.setFirstName("Wanjiru");
+        user.setLastName("Kamau");
+        user.setEmail("wanjiru.kamau@garbigo.test");
+        user.setPhoneNumber("+254712345678");
+        user.setHomeAddress("Ngong Road, Nairobi");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoO5s0pXzvG1bU1b2kJ8YzQ9wL3mN4oP6a");
+        user.setRole(Role.CLIENT);
+        user.setSearchTerms(List.of("wanjiru.kamau@garbigo.test", "wanjiru.kamau", "wanjiru", "kamau"));
+        return user;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        EventCodecBenchmark sizes = new EventCodecBenchmark();
+        sizes.setup();
+        System.out.println("Payload bytes: json=" + sizes.jsonBody.length
+                + " binary=" + sizes.binaryBody.length
+                + " java-serialized User=" + sizes.javaMessage.getBody().length);
+
+        new Runner(new OptionsBuilder()
+                .include(EventCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
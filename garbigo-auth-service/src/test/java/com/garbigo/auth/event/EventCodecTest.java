@@ -0,0 +1,63 @@
+package com.garbigo.auth.event;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EventCodecTest {
+
+    private static final UserCreatedEvent EVENT = new UserCreatedEvent("64f1c2a9e4b0a1b2c3d4e5f6",
+            "wanjiru.kamau@garbigo.test", "Wanjiru", "Kamau", null, "CLIENT", 1_700_000_000_123L);
+
+    @Test
+    void binaryRoundTripsIncludingNullsAndNonAscii() {
+        BinaryEventCodec codec = new BinaryEventCodec();
+        UserCreatedEvent event = new UserCreatedEvent("id", "zoë@garbigo.test", "Zoë", "", null, "ADMIN", -1L);
+        assertEquals(event, codec.decode(UserCreatedEvent.TYPE, 1, codec.encode(event)));
+        assertEquals(EVENT, codec.decode(UserCreatedEvent.TYPE, 1, codec.encode(EVENT)));
+    }
+
+    // v1 wire format. If this fails, the record changed: bump SCHEMA_VERSION and keep decoding v1
+    @Test
+    void binaryLayoutIsPinnedForVersion1() {
+        BinaryEventCodec codec = new BinaryEventCodec();
+        UserCreatedEvent event = new UserCreatedEvent("u", "e@x", "A", "B", null, "CLIENT", 0x0102030405060708L);
+        byte[] v1 = java.util.HexFormat.of().parseHex(
+                "0275" + "04654078" + "0241" + "0242" + "00" + "07434c49454e54" + "0102030405060708");
+
+        assertEquals(1, UserCreatedEvent.SCHEMA_VERSION);
+        assertArrayEquals(v1, codec.encode(event));
+        assertEquals(event, codec.decode(UserCreatedEvent.TYPE, 1, v1));
+    }
+
+    @Test
+    void binaryRejectsTruncatedBodyAndUnknownVersion() {
+        BinaryEventCodec codec = new BinaryEventCodec();
+        byte[] body = codec.encode(EVENT);
+        byte[] truncated = java.util.Arrays.copyOf(body, body.length - 3);
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(UserCreatedEvent.TYPE, 1, truncated));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(UserCreatedEvent.TYPE, 2, body));
+    }
+
+    @Test
+    void converterStampsTypeAndVersionAndDecodesEitherFormat() {
+        JsonEventCodec json = new JsonEventCodec();
+        BinaryEventCodec binary = new BinaryEventCodec();
+        EventMessageConverter jsonProducer = new EventMessageConverter(json, java.util.List.of(binary));
+        EventMessageConverter binaryProducer = new EventMessageConverter(binary, java.util.List.of(json));
+
+        Message message = binaryProducer.toMessage(EVENT, new MessageProperties());
+        assertEquals(UserCreatedEvent.TYPE, message.getMessageProperties().getType());
+        assertEquals(UserCreatedEvent.SCHEMA_VERSION,
+                (Integer) message.getMessageProperties().getHeader(EventMessageConverter.SCHEMA_VERSION_HEADER));
+        assertEquals(BinaryEventCodec.CONTENT_TYPE, message.getMessageProperties().getContentType());
+
+        // A consumer configured for JSON still reads binary messages, and vice versa
+        assertEquals(EVENT, jsonProducer.fromMessage(message));
+        assertEquals(EVENT, binaryProducer.fromMessage(jsonProducer.toMessage(EVENT, new MessageProperties())));
+    }
+}
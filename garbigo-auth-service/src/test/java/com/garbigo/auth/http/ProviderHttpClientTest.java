@@ -0,0 +1,116 @@
+package com.garbigo.auth.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Against a local mock provider whose response latency is set per test
+class ProviderHttpClientTest {
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private volatile long latencyMillis;
+    private URI uri;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        handlers = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(handlers);
+        server.createContext("/graph", exchange -> {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"id\":\"42\",\"name\":\"Amina Otieno\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/graph");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    void independentCallsOverlap() {
+        latencyMillis = 300;
+        ProviderHttpClient client = client(Duration.ofSeconds(2), 10, Duration.ofMillis(100));
+
+        long start = System.nanoTime();
+        CompletableFuture<JsonNode> first = client.getJsonAsync(uri);
+        CompletableFuture<JsonNode> second = client.getJsonAsync(uri);
+        assertEquals("42", first.join().path("id").asText());
+        assertEquals("Amina Otieno", second.join().path("name").asText());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 550, "calls ran sequentially: " + elapsedMillis + " ms");
+        assertEquals(2, meterRegistry.get("auth.outbound.http.latency")
+                .tags("provider", "facebook", "outcome", "SUCCESS").timer().count());
+    }
+
+    @Test
+    void slowProviderTimesOut() {
+        latencyMillis = 1000;
+        ProviderHttpClient client = client(Duration.ofMillis(150), 10, Duration.ofMillis(100));
+
+        CompletionException e = assertThrows(CompletionException.class, () -> client.getJsonAsync(uri).join());
+        assertInstanceOf(HttpTimeoutException.class, e.getCause());
+        assertEquals(1, meterRegistry.get("auth.outbound.http.latency")
+                .tags("provider", "facebook", "outcome", "TIMEOUT").timer().count());
+    }
+
+    @Test
+    void fullBulkheadRejectsInsteadOfQueuing() {
+        latencyMillis = 500;
+        ProviderHttpClient client = client(Duration.ofSeconds(2), 2, Duration.ZERO);
+
+        CompletableFuture<JsonNode> first = client.getJsonAsync(uri);
+        CompletableFuture<JsonNode> second = client.getJsonAsync(uri);
+        CompletionException e = assertThrows(CompletionException.class, () -> client.getJsonAsync(uri).join());
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, meterRegistry.counter("auth.outbound.http.rejected", "provider", "facebook").count());
+
+        // Permits come back once the slow calls finish
+        first.join();
+        second.join();
+        assertEquals("42", client.getJsonAsync(uri).join().path("id").asText());
+    }
+
+    private ProviderHttpClient client(Duration requestTimeout, int maxConcurrent, Duration bulkheadWait) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        return new ProviderHttpClient("facebook", httpClient, requestTimeout, maxConcurrent, bulkheadWait, meterRegistry);
+    }
+}
@@ -0,0 +1,114 @@
+package com.garbigo.auth.load;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.AbstractProtocol;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Throughput of an embedded Tomcat whose handler blocks for a fixed time, standing in for a
+// Mongo/SMTP/provider call, under more concurrent clients than the default 200 request threads.
+// The platform-thread connector tops out at maxThreads / latency; the virtual-thread connector,
+// as configured by spring.threads.virtual.enabled, keeps scaling with the client count.
+// Asserts on wall-clock throughput, so it is excluded from the default build; run it with -Pload.
+@Tag("load")
+class VirtualThreadScalingLoadTest {
+
+    private static final int BLOCKING_MILLIS = 100;
+    private static final int CLIENTS = 1000;
+    private static final int REQUESTS_PER_CLIENT = 5;
+
+    @Test
+    void virtualThreadsScaleBeyondTheDefaultRequestPool() throws Exception {
+        double platform = run(false);
+        double virtual = run(true);
+        System.err.printf("%d clients, %d ms blocking handler: platform(200 threads)=%.0f req/s, virtual=%.0f req/s%n",
+                CLIENTS, BLOCKING_MILLIS, platform, virtual);
+
+        // Platform is capped near 200 / 0.1 s = 2000 req/s; virtual should approach 10000 req/s
+        assertTrue(platform < 2400, "platform pool was not the bottleneck: " + platform);
+        assertTrue(virtual > platform * 2, "virtual threads did not scale: " + virtual + " vs " + platform);
+    }
+
+    private static double run(boolean virtualThreads) throws Exception {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("vt-load").toString());
+        Connector connector = new Connector("HTTP/1.1");
+        connector.setPort(0);
+        connector.setProperty("maxThreads", "200");
+        connector.setProperty("maxConnections", String.valueOf(CLIENTS * 2));
+        connector.setProperty("acceptCount", String.valueOf(CLIENTS));
+        if (virtualThreads) {
+            ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        tomcat.setConnector(connector);
+
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "blocking", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                try {
+                    Thread.sleep(BLOCKING_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                response.getWriter().write("ok");
+            }
+        });
+        context.addServletMappingDecoded("/io", "blocking");
+        tomcat.start();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + connector.getLocalPort() + "/io")).build();
+
+            // Warm up connections and JIT before timing
+            http.send(request, HttpResponse.BodyHandlers.ofString());
+
+            AtomicInteger ok = new AtomicInteger();
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>(CLIENTS);
+            for (int c = 0; c < CLIENTS; c++) {
+                futures.add(clients.submit(() -> {
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        if (http.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() == 200) {
+                            ok.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            assertEquals(CLIENTS * REQUESTS_PER_CLIENT, ok.get());
+            return ok.get() / seconds;
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.garbigo.auth.security;
+
+import com.garbigo.auth.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void rejectsImmediatelyOnceThreadsAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder slow = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals(encode(rawPassword));
+            }
+        };
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slow, 1, 1, meterRegistry)) {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (meterRegistry.get("auth.password.hash.queue.depth").gauge().value() < 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            long start = System.nanoTime();
+            assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("c"));
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+            assertEquals(1, meterRegistry.counter("auth.password.hash.rejected").count());
+
+            release.countDown();
+            assertEquals("hashed:a", running.get(5, TimeUnit.SECONDS));
+            assertEquals("hashed:b", queued.get(5, TimeUnit.SECONDS));
+            assertTrue(encoder.matches("d", "hashed:d"));
+        }
+    }
+
+    @Test
+    void calibrationStaysWithinBounds() {
+        int cost = BCryptCostCalibrator.calibrate(java.time.Duration.ofMillis(1), 4, 6);
+        assertEquals(4, cost);
+        assertTrue(BCryptCostCalibrator.calibrate(java.time.Duration.ofSeconds(10), 4, 6) <= 6);
+    }
+}
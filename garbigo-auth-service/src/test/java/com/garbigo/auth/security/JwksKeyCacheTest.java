@@ -0,0 +1,156 @@
+package com.garbigo.auth.security;
+
+import com.garbigo.auth.http.ProviderHttpClient;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs against a local stand-in for the provider's JWKS endpoint
+class JwksKeyCacheTest {
+
+    private HttpServer server;
+    private final AtomicInteger fetches = new AtomicInteger();
+    private volatile String jwks;
+    private volatile String cacheControl = "public, max-age=3600";
+    private URI uri;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/keys", exchange -> {
+            fetches.incrementAndGet();
+            byte[] body = jwks.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/keys");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void parsesOnceAndServesRepeatedLookupsFromMemory() throws Exception {
+        KeyPair key = rsaKey();
+        jwks = jwks(jwk("k1", key));
+        JwksKeyCache cache = cache(Duration.ofSeconds(30));
+
+        RSAPublicKey first = (RSAPublicKey) cache.getKey("k1");
+        assertEquals(((RSAPublicKey) key.getPublic()).getModulus(), first.getModulus());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(first == cache.getKey("k1"));
+        }
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void refetchesOnceWhenProviderRotatesKeys() throws Exception {
+        jwks = jwks(jwk("old", rsaKey()));
+        JwksKeyCache cache = cache(Duration.ZERO);
+        cache.getKey("old");
+
+        jwks = jwks(jwk("old", rsaKey()), jwk("new", rsaKey()));
+        assertTrue(cache.getKey("new") != null);
+        assertEquals(2, fetches.get());
+        cache.getKey("new");
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void unknownKidRefetchesAtMostOncePerInterval() throws Exception {
+        jwks = jwks(jwk("k1", rsaKey()));
+        JwksKeyCache cache = cache(Duration.ofMinutes(5));
+        cache.getKey("k1");
+
+        for (int i = 0; i < 50; i++) {
+            assertNull(cache.getKey("forged-" + i));
+        }
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void backgroundRefreshFollowsCacheControl() throws Exception {
+        cacheControl = "public, max-age=1";
+        jwks = jwks(jwk("k1", rsaKey()));
+        JwksKeyCache cache = cache(Duration.ofMillis(100));
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            cache.scheduleRefresh(scheduler, Duration.ofSeconds(1));
+            // Initial fetch plus at least one refresh at ~0.9 s
+            long deadline = System.currentTimeMillis() + 5000;
+            while (fetches.get() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(fetches.get() >= 2, "refreshes: " + fetches.get());
+            assertEquals(1, cache.size());
+        } finally {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void keepsServingCachedKeysWhenProviderFails() throws Exception {
+        jwks = jwks(jwk("k1", rsaKey()));
+        JwksKeyCache cache = cache(Duration.ZERO);
+        cache.getKey("k1");
+
+        jwks = "not json";
+        assertNull(cache.getKey("k2"));
+        assertTrue(cache.getKey("k1") != null);
+    }
+
+    private JwksKeyCache cache(Duration minRefetch) {
+        ProviderHttpClient http = new ProviderHttpClient("test", HttpClient.newHttpClient(), Duration.ofSeconds(2), 10,
+                Duration.ofMillis(100), new SimpleMeterRegistry());
+        return new JwksKeyCache(uri, http, minRefetch, Duration.ofHours(1));
+    }
+
+    private static KeyPair rsaKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static String jwk(String kid, KeyPair key) {
+        RSAPublicKey publicKey = (RSAPublicKey) key.getPublic();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return "{\"kty\":\"RSA\",\"kid\":\"" + kid + "\",\"use\":\"sig\",\"alg\":\"RS256\",\"n\":\""
+                + encoder.encodeToString(unsigned(publicKey.getModulus().toByteArray())) + "\",\"e\":\""
+                + encoder.encodeToString(unsigned(publicKey.getPublicExponent().toByteArray())) + "\"}";
+    }
+
+    private static String jwks(String... keys) {
+        return "{\"keys\":[" + String.join(",", keys) + "]}";
+    }
+
+    private static byte[] unsigned(byte[] value) {
+        return value.length > 1 && value[0] == 0 ? java.util.Arrays.copyOfRange(value, 1, value.length) : value;
+    }
+}
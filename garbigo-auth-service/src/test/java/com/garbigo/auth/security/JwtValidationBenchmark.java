@@ -0,0 +1,85 @@
+package com.garbigo.auth.security;
+
+import com.garbigo.auth.model.Role;
+import com.garbigo.auth.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Per-request token validation cost: the old triple parse with a rebuilt key versus a single cached-parser parse
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtValidationBenchmark {
+
+    private static final String SECRET = "pR5q9T8wX2z7C4v3B6nM1kLj8HgFdEaSbQcW3eZr4tY7uKiOp9L0mN2bV5cX8jH";
+
+    private JwtUtil jwtUtil;
+    private String token;
+    private String email;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600L);
+        jwtUtil.init();
+
+        User user = new User();
+        user.setId("64f1c2a9e4b0a1b2c3d4e5f6");
+        user.setEmail("collector@garbigo.test");
+        user.setRole(Role.COLLECTOR);
+        user.setVerified(true);
+        email = user.getEmail();
+        token = jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean legacyTripleParse() {
+        String subject = legacyClaims(token).getSubject();
+        boolean sameUser = legacyClaims(token).getSubject().equals(email);
+        boolean expired = legacyClaims(token).getExpiration().before(new Date());
+        return subject != null && sameUser && !expired;
+    }
+
+    @Benchmark
+    public VerifiedToken singleParse() {
+        return jwtUtil.verify(token);
+    }
+
+    // Mirrors the previous JwtUtil: decode the secret and build a new parser for every call
+    private static Claims legacyClaims(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtValidationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
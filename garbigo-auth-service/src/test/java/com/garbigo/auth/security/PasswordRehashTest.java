@@ -0,0 +1,82 @@
+package com.garbigo.auth.security;
+
+import com.garbigo.auth.model.User;
+import com.garbigo.auth.repository.UserRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Login with a hash below the configured cost rewrites it, guarded on the stored hash being unchanged
+class PasswordRehashTest {
+
+    private static final String EMAIL = "collector@garbigo.test";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Test
+    void loginUpgradesALowerCostHashOnlyIfTheStoredHashIsUnchanged() {
+        String oldHash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        DaoAuthenticationProvider provider = provider(userWithHash(oldHash), mongoTemplate, 5);
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, PASSWORD));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(User.class));
+        assertEquals("user-1", query.getValue().getQueryObject().get("_id"));
+        assertEquals(oldHash, query.getValue().getQueryObject().get("password"));
+        String newHash = ((Document) update.getValue().getUpdateObject().get("$set")).getString("password");
+        assertTrue(newHash.startsWith("$2a$05$"), newHash);
+        assertTrue(new BCryptPasswordEncoder(5).matches(PASSWORD, newHash));
+    }
+
+    @Test
+    void loginLeavesAHashAtTheConfiguredCostAlone() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        DaoAuthenticationProvider provider = provider(
+                userWithHash(new BCryptPasswordEncoder(5).encode(PASSWORD)), mongoTemplate, 5);
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, PASSWORD));
+
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(User.class));
+    }
+
+    private static DaoAuthenticationProvider provider(User user, MongoTemplate mongoTemplate, int cost) {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+        UserDetailsServiceImpl userDetailsService = new UserDetailsServiceImpl(userRepository, mongoTemplate);
+
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setPasswordEncoder(new BCryptPasswordEncoder(cost));
+        provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(userDetailsService);
+        return provider;
+    }
+
+    private static User userWithHash(String hash) {
+        User user = new User();
+        user.setId("user-1");
+        user.setEmail(EMAIL);
+        user.setPassword(hash);
+        user.setActive(true);
+        user.setVerified(true);
+        return user;
+    }
+}
@@ -0,0 +1,134 @@
+package com.garbigo.auth.security;
+
+import com.cloudinary.Cloudinary;
+import com.garbigo.auth.model.Role;
+import com.garbigo.auth.model.User;
+import com.garbigo.auth.repository.UserRepository;
+import com.garbigo.auth.service.AuthService;
+import com.garbigo.auth.service.UserSearchService;
+import com.garbigo.auth.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Admin changes to an account must end the stateless tokens already issued to it
+class StatelessTokenRevocationTest {
+
+    private static final String SECRET = "pR5q9T8wX2z7C4v3B6nM1kLj8HgFdEaSbQcW3eZr4tY7uKiOp9L0mN2bV5cX8jH";
+
+    private UserRepository userRepository;
+    private UserService userService;
+    private JwtUtil jwtUtil;
+    private JwtFilter jwtFilter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 900L);
+        jwtUtil.init();
+
+        RedissonClient redisson = mock(RedissonClient.class);
+        doReturn(mock(RMapCache.class)).when(redisson).getMapCache(anyString());
+        doReturn(mock(RTopic.class)).when(redisson).getTopic(anyString());
+        TokenRevocationRegistry revocationRegistry = new TokenRevocationRegistry(redisson, 900);
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(new SimpleMeterRegistry(), true, 100, 300);
+
+        jwtFilter = new JwtFilter(jwtUtil, mock(UserDetailsServiceImpl.class), revocationRegistry, tokenCache);
+        ReflectionTestUtils.setField(jwtFilter, "stateless", true);
+
+        userRepository = mock(UserRepository.class);
+        userService = new UserService(userRepository, mock(Cloudinary.class), mock(PasswordEncoder.class),
+                mock(AuthService.class), revocationRegistry, tokenCache, mock(MongoTemplate.class),
+                mock(UserSearchService.class));
+
+        user = new User();
+        user.setId("user-1");
+        user.setEmail("operator@example.com");
+        user.setRole(Role.ADMIN);
+        user.setVerified(true);
+        user.setActive(true);
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void demotedUsersExistingTokenIsRejected() throws Exception {
+        String token = jwtUtil.generateToken(user);
+        assertNotNull(authenticate(token));
+
+        User update = new User();
+        update.setRole(Role.CLIENT);
+        userService.updateUser("user-1", update);
+
+        assertNull(authenticate(token));
+        assertEquals("ROLE_CLIENT", authenticate(jwtUtil.generateToken(user)).getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void deletedUsersExistingTokenIsRejected() throws Exception {
+        String token = jwtUtil.generateToken(user);
+        assertNotNull(authenticate(token));
+
+        userService.deleteUser("user-1");
+
+        assertNull(authenticate(token));
+    }
+
+    @Test
+    void unverifiedUsersExistingTokenIsRejected() throws Exception {
+        String token = jwtUtil.generateToken(user);
+        assertNotNull(authenticate(token));
+
+        userService.unverifyUser("user-1");
+
+        assertNull(authenticate(token));
+    }
+
+    @Test
+    void editWithoutRoleChangeKeepsExistingToken() throws Exception {
+        String token = jwtUtil.generateToken(user);
+
+        User update = new User();
+        update.setFirstName("Ada");
+        update.setRole(Role.ADMIN);
+        userService.updateUser("user-1", update);
+
+        assertNotNull(authenticate(token));
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
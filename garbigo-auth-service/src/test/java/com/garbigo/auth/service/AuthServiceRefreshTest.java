@@ -0,0 +1,129 @@
+package com.garbigo.auth.service;
+
+import com.cloudinary.Cloudinary;
+import com.garbigo.auth.dto.AuthResponse;
+import com.garbigo.auth.dto.RefreshTokenRequest;
+import com.garbigo.auth.exception.CustomException;
+import com.garbigo.auth.model.Role;
+import com.garbigo.auth.model.TokenType;
+import com.garbigo.auth.model.User;
+import com.garbigo.auth.repository.UserRepository;
+import com.garbigo.auth.security.JwtUtil;
+import com.garbigo.auth.security.TokenRevocationRegistry;
+import com.garbigo.auth.security.VerifiedTokenCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceRefreshTest {
+
+    private static final String PRESENTED = "family.old";
+    private static final String ROTATED = "family.new";
+
+    private UserRepository userRepository;
+    private TokenService tokenService;
+    private PasswordEncoder passwordEncoder;
+    private JwtUtil jwtUtil;
+    private RefreshTokenService refreshTokenService;
+    private TokenRevocationRegistry revocationRegistry;
+    private VerifiedTokenCache tokenCache;
+    private AuthService authService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        tokenService = mock(TokenService.class);
+        passwordEncoder = mock(PasswordEncoder.class);
+        jwtUtil = mock(JwtUtil.class);
+        refreshTokenService = mock(RefreshTokenService.class);
+        revocationRegistry = mock(TokenRevocationRegistry.class);
+        tokenCache = mock(VerifiedTokenCache.class);
+        authService = new AuthService(userRepository, tokenService, passwordEncoder,
+                mock(AuthenticationManager.class), jwtUtil, mock(MailOutboxService.class), mock(Cloudinary.class),
+                mock(EventOutboxService.class), refreshTokenService, revocationRegistry, tokenCache);
+
+        user = new User();
+        user.setId("user-1");
+        user.setEmail("collector@example.com");
+        user.setRole(Role.CLIENT);
+        user.setActive(true);
+        user.setTokenVersion(2);
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        when(jwtUtil.generateToken(any())).thenReturn("access");
+        when(jwtUtil.getExpirationSeconds()).thenReturn(900L);
+    }
+
+    @Test
+    void refreshIssuesAnAccessTokenWithTheRotatedRefreshToken() {
+        when(refreshTokenService.rotate(PRESENTED))
+                .thenReturn(new RefreshTokenService.Rotation("user-1", 2, ROTATED));
+
+        AuthResponse response = authService.refresh(request(PRESENTED));
+
+        assertEquals("access", response.getToken());
+        assertEquals(ROTATED, response.getRefreshToken());
+        assertEquals(900L, response.getExpiresIn());
+        verify(refreshTokenService, never()).revokeFamily(anyString());
+    }
+
+    @Test
+    void refreshEndsTheFamilyWhenTheTokenVersionMoved() {
+        when(refreshTokenService.rotate(PRESENTED))
+                .thenReturn(new RefreshTokenService.Rotation("user-1", 1, ROTATED));
+
+        assertThrows(CustomException.class, () -> authService.refresh(request(PRESENTED)));
+        verify(refreshTokenService).revokeFamily(ROTATED);
+    }
+
+    @Test
+    void refreshEndsTheFamilyOfADeactivatedAccount() {
+        user.setActive(false);
+        when(refreshTokenService.rotate(PRESENTED))
+                .thenReturn(new RefreshTokenService.Rotation("user-1", 2, ROTATED));
+
+        assertThrows(CustomException.class, () -> authService.refresh(request(PRESENTED)));
+        verify(refreshTokenService).revokeFamily(ROTATED);
+    }
+
+    @Test
+    void refreshEndsTheFamilyOfAnArchivedAccount() {
+        user.setArchived(true);
+        when(refreshTokenService.rotate(PRESENTED))
+                .thenReturn(new RefreshTokenService.Rotation("user-1", 2, ROTATED));
+
+        assertThrows(CustomException.class, () -> authService.refresh(request(PRESENTED)));
+        verify(refreshTokenService).revokeFamily(ROTATED);
+    }
+
+    @Test
+    void passwordResetRevokesEveryOutstandingToken() {
+        when(passwordEncoder.encode("new-password")).thenReturn("hash");
+        when(tokenService.consume("reset", TokenType.RESET)).thenReturn("user-1");
+
+        authService.resetPassword("reset", "new-password");
+
+        assertEquals(3, user.getTokenVersion());
+        verify(userRepository).save(user);
+        verify(revocationRegistry).revoke("user-1", 3);
+        verify(tokenCache).invalidateUser("user-1");
+    }
+
+    private static RefreshTokenRequest request(String refreshToken) {
+        RefreshTokenRequest request = new RefreshTokenRequest();
+        request.setRefreshToken(refreshToken);
+        return request;
+    }
+}
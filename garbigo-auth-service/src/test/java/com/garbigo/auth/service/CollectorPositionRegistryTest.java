@@ -0,0 +1,70 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.exception.CustomException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollectorPositionRegistryTest {
+
+    private static final double LAT = -1.2864;
+    private static final double LON = 36.8172;
+
+    private CollectorPositionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new CollectorPositionRegistry(new SimpleMeterRegistry(), 64, 3600, 0.01, 5, 3);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            registry.update("collector-" + i, LAT + i * 0.001, LON, now);
+        }
+    }
+
+    @Test
+    void nonPositiveArgumentsAreRejected() {
+        assertThrows(CustomException.class, () -> registry.nearby(LAT, LON, 2, -1));
+        assertThrows(CustomException.class, () -> registry.nearby(LAT, LON, 0, 10));
+        assertThrows(CustomException.class, () -> registry.nearby(LAT, LON, Double.NaN, 10));
+        assertThrows(CustomException.class, () -> registry.nearest(LAT, LON, 0));
+        assertThrows(CustomException.class, () -> registry.nearby(91, LON, 2, 10));
+    }
+
+    @Test
+    void aPingStampedInTheFutureOnlyHoldsTheCollectorForTheAllowedSkew() {
+        registry.update("drifting", LAT, LON, System.currentTimeMillis() + 86_400_000L);
+
+        // Clamped to within 30 s of receipt, so pings from the real clock win again shortly after
+        assertTrue(registry.get("drifting").getTimestamp().toEpochMilli() <= System.currentTimeMillis() + 30_000);
+        registry.update("drifting", LAT + 0.01, LON, System.currentTimeMillis() + 60_000);
+        assertEquals(LAT + 0.01, registry.get("drifting").getLatitude(), 1e-9);
+    }
+
+    @Test
+    void aSlowClientClockDoesNotEvictALiveCollector() {
+        registry.update("slow-clock", LAT, LON, System.currentTimeMillis() - 86_400_000L);
+        registry.evictIdle();
+
+        assertNotNull(registry.get("slow-clock"));
+    }
+
+    @Test
+    void invalidCoordinatesNeverReachTheGrid() {
+        registry.update("broken", Double.NaN, LON, System.currentTimeMillis());
+        registry.update("broken", LAT, 200, System.currentTimeMillis());
+
+        assertNull(registry.get("broken"));
+    }
+
+    @Test
+    void limitsAndRadiusAreCapped() {
+        assertEquals(3, registry.nearby(LAT, LON, 20000, 1000).size());
+        assertEquals(3, registry.nearest(LAT, LON, 1000).size());
+    }
+}
@@ -0,0 +1,100 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.dto.CollectorPosition;
+import com.garbigo.auth.dto.NearbyCollector;
+import com.garbigo.auth.util.GeoGrid;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Nearby / nearest queries over a synthetic fleet spread across greater Nairobi, against a linear scan
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectorSpatialQueryBenchmark {
+
+    private static final double CENTER_LAT = -1.2921;
+    private static final double CENTER_LON = 36.8219;
+    private static final double SPREAD_DEGREES = 0.3;
+
+    @Param({"1000", "5000", "20000"})
+    private int fleetSize;
+
+    private CollectorPositionRegistry registry;
+    private double[][] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        registry = new CollectorPositionRegistry(new SimpleMeterRegistry(),
+                fleetSize, 3600, 0.01, 100, 200);
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < fleetSize; i++) {
+            registry.update("collector-" + i,
+                    CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD_DEGREES,
+                    CENTER_LON + (random.nextDouble() - 0.5) * SPREAD_DEGREES,
+                    now);
+        }
+
+        queries = new double[1024][2];
+        for (double[] query : queries) {
+            query[0] = CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD_DEGREES;
+            query[1] = CENTER_LON + (random.nextDouble() - 0.5) * SPREAD_DEGREES;
+        }
+    }
+
+    @Benchmark
+    public List<NearbyCollector> nearbyWithin2Km() {
+        double[] query = nextQuery();
+        return registry.nearby(query[0], query[1], 2, 50);
+    }
+
+    @Benchmark
+    public List<NearbyCollector> nearest5() {
+        double[] query = nextQuery();
+        return registry.nearest(query[0], query[1], 5);
+    }
+
+    @Benchmark
+    public List<CollectorPosition> linearScanWithin2Km() {
+        double[] query = nextQuery();
+        List<CollectorPosition> result = new ArrayList<>();
+        for (CollectorPosition position : registry.active()) {
+            if (GeoGrid.haversineKm(query[0], query[1], position.getLatitude(), position.getLongitude()) <= 2) {
+                result.add(position);
+            }
+        }
+        return result;
+    }
+
+    private double[] nextQuery() {
+        return queries[next++ & (queries.length - 1)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CollectorSpatialQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
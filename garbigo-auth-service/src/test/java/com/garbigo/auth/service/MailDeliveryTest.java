@@ -0,0 +1,80 @@
+package com.garbigo.auth.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Batch delivery against an in-process GreenMail SMTP server
+class MailDeliveryTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Test
+    void sendsWholeBatch() throws Exception {
+        JavaMailSenderImpl mailSender = mailSender(ServerSetupTest.SMTP.getPort());
+
+        Map<Integer, String> failures = new MailBatchSender(mailSender).send(messages(mailSender, 3));
+
+        assertTrue(failures.isEmpty());
+        assertEquals(3, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void reportsEveryMessageWhenServerIsUnreachable() throws Exception {
+        JavaMailSenderImpl mailSender = mailSender(unusedPort());
+
+        Map<Integer, String> failures = new MailBatchSender(mailSender).send(messages(mailSender, 3));
+
+        assertEquals(3, failures.size());
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertEquals(30_000, MailOutboxService.backoffMillis(1, 30_000, 3_600_000));
+        assertEquals(60_000, MailOutboxService.backoffMillis(2, 30_000, 3_600_000));
+        assertEquals(240_000, MailOutboxService.backoffMillis(4, 30_000, 3_600_000));
+        assertEquals(3_600_000, MailOutboxService.backoffMillis(20, 30_000, 3_600_000));
+    }
+
+    private static JavaMailSenderImpl mailSender(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        return mailSender;
+    }
+
+    private static List<MimeMessage> messages(JavaMailSenderImpl mailSender, int count) throws Exception {
+        List<MimeMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+            helper.setFrom("noreply@garbigo.test");
+            helper.setTo("user" + i + "@garbigo.test");
+            helper.setSubject("Message " + i);
+            helper.setText("<p>Hello " + i + "</p>", true);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.exception.CustomException;
+import com.garbigo.auth.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Runs against the same local Redis the application context test expects
+class RefreshTokenServiceTest {
+
+    private RedissonClient redissonClient;
+    private SimpleMeterRegistry meterRegistry;
+    private RefreshTokenService refreshTokenService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://localhost:6379");
+        redissonClient = Redisson.create(config);
+        meterRegistry = new SimpleMeterRegistry();
+        refreshTokenService = new RefreshTokenService(redissonClient, meterRegistry);
+        ReflectionTestUtils.setField(refreshTokenService, "idleValidity", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(refreshTokenService, "maxLifetime", Duration.ofHours(1));
+
+        user = new User();
+        user.setId(UUID.randomUUID().toString());
+        user.setTokenVersion(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        redissonClient.shutdown();
+    }
+
+    @Test
+    void rotationReturnsTheUserAndASuccessorInTheSameFamily() {
+        String first = refreshTokenService.issue(user);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(first);
+
+        assertEquals(user.getId(), rotation.userId());
+        assertEquals(3, rotation.tokenVersion());
+        assertNotEquals(first, rotation.refreshToken());
+        assertEquals(first.substring(0, first.indexOf('.')),
+                rotation.refreshToken().substring(0, rotation.refreshToken().indexOf('.')));
+        refreshTokenService.rotate(rotation.refreshToken());
+    }
+
+    @Test
+    void reusingARetiredTokenRevokesTheWholeFamily() {
+        String first = refreshTokenService.issue(user);
+        String second = refreshTokenService.rotate(first).refreshToken();
+
+        assertThrows(CustomException.class, () -> refreshTokenService.rotate(first));
+        assertThrows(CustomException.class, () -> refreshTokenService.rotate(second));
+        assertEquals(1, meterRegistry.counter("auth.refresh.reuse-detected").count());
+    }
+
+    @Test
+    void unknownTokensAreRejectedWithoutTouchingTheFamily() {
+        String token = refreshTokenService.issue(user);
+        String familyId = token.substring(0, token.indexOf('.'));
+
+        assertThrows(CustomException.class, () -> refreshTokenService.rotate(familyId + ".forged"));
+        assertThrows(CustomException.class, () -> refreshTokenService.rotate("not-a-refresh-token"));
+        refreshTokenService.rotate(token);
+    }
+
+    @Test
+    void revokedFamiliesCannotBeRefreshed() {
+        String token = refreshTokenService.issue(user);
+
+        refreshTokenService.revokeFamily(token);
+
+        assertThrows(CustomException.class, () -> refreshTokenService.rotate(token));
+    }
+}
@@ -0,0 +1,129 @@
+package com.garbigo.auth.service;
+
+import com.garbigo.auth.dto.UserDto;
+import com.garbigo.auth.dto.UserPage;
+import com.garbigo.auth.util.SearchTerms;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Indexed searchTerms prefix search against the old unanchored case-insensitive $regex.
+// Needs a local MongoDB; seeds a throwaway database and drops it afterwards.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSearchBenchmark {
+
+    private static final String DATABASE = "garbigo_auth_search_bench";
+    private static final String[] FIRST_NAMES = {"Amina", "Brian", "Cynthia", "David", "Esther", "Felix", "Grace",
+            "Hassan", "Irene", "James", "Kevin", "Lucy", "Mercy", "Njeri", "Otieno", "Peter", "Wanjiru", "Zawadi"};
+    private static final String[] LAST_NAMES = {"Achieng", "Barasa", "Chege", "Kamau", "Kiprop", "Mwangi", "Njoroge",
+            "Odhiambo", "Ochieng", "Wafula", "Wambui", "Mutua", "Kariuki", "Omondi", "Kimani", "Nyambura"};
+
+    @Param({"100000", "1000000"})
+    private int users;
+
+    @Param({"kam", "esther", "wanjiru.kamau"})
+    private String term;
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private UserSearchService searchService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        client = MongoClients.create("mongodb://localhost:27017");
+        mongoTemplate = new MongoTemplate(client, DATABASE);
+        mongoTemplate.dropCollection("users");
+
+        Random random = new Random(42);
+        List<Document> batch = new ArrayList<>(1000);
+        for (int i = 0; i < users; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            String email = first.toLowerCase() + "." + last.toLowerCase() + i + "@example.com";
+            List<String> terms = SearchTerms.of(email, first, last);
+            batch.add(new Document("email", email)
+                    .append("firstName", first)
+                    .append("lastName", last)
+                    .append("role", "CLIENT")
+                    .append("searchTerms", terms)
+                    .append("searchPrefixes", SearchTerms.prefixes(terms)));
+            if (batch.size() == 1000) {
+                mongoTemplate.getCollection("users").insertMany(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            mongoTemplate.getCollection("users").insertMany(batch);
+        }
+        mongoTemplate.indexOps("users").ensureIndex(new Index()
+                .on("searchTerms", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("searchTerms_id"));
+        mongoTemplate.indexOps("users").ensureIndex(new Index()
+                .on("searchPrefixes", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("searchPrefixes_id"));
+
+        searchService = new UserSearchService(mongoTemplate, 2, 10_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.getDatabase(DATABASE).drop();
+        client.close();
+    }
+
+    @Benchmark
+    public UserPage indexedSearch() {
+        return searchService.search(term, null, 50);
+    }
+
+    // The query UserRepository.searchUsers used to run, with the same page size applied
+    @Benchmark
+    public List<UserDto> legacyRegexSearch() {
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("email").regex(term, "i"),
+                Criteria.where("firstName").regex(term, "i"),
+                Criteria.where("lastName").regex(term, "i")))
+                .limit(50);
+        query.fields().include(UserDto.PROJECTED_FIELDS);
+        return mongoTemplate.find(query, UserDto.class, "users");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,28 @@
+package com.garbigo.auth.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledTemplateTest {
+
+    @Test
+    void rendersVariablesEscaped() {
+        CompiledTemplate template = CompiledTemplate.compile("<p>Hi {{ firstName }},</p><a href=\"{{appUrl}}/x\">go</a>");
+        StringBuilder out = new StringBuilder();
+        template.renderTo(out, Map.of("firstName", "<Amina & \"Co\">", "appUrl", "https://garbigo.app"));
+        assertEquals("<p>Hi &lt;Amina &amp; &quot;Co&quot;&gt;,</p><a href=\"https://garbigo.app/x\">go</a>",
+                out.toString());
+    }
+
+    @Test
+    void rejectsMalformedTemplatesAndMissingVariables() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("Hi {{name"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("Hi {{first name}}"));
+        CompiledTemplate template = CompiledTemplate.compile("Hi {{name}}");
+        assertThrows(IllegalArgumentException.class, () -> template.renderTo(new StringBuilder(), Map.of()));
+    }
+}
@@ -0,0 +1,138 @@
+package com.garbigo.auth.util;
+
+import com.garbigo.auth.config.RateLimiterConfig.LocalTier;
+import com.garbigo.auth.config.RateLimiterConfig.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs against the same local Redis the application context test expects
+class RateLimiterConcurrencyTest {
+
+    private static final int LIMIT = 20;
+    // Long window so refill during the test run stays well below one token
+    private static final int WINDOW_SECONDS = 3600;
+
+    private RedissonClient redissonClient;
+
+    @BeforeEach
+    void setUp() {
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://localhost:6379");
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        redissonClient.shutdown();
+    }
+
+    @Test
+    void parallelRequestsForOneKeyNeverExceedTheLimit() throws Exception {
+        assertEquals(LIMIT, countAllowed(LocalTier.disabled()));
+    }
+
+    @Test
+    void localTierOnASingleNodeStillHoldsTheLimitExactly() throws Exception {
+        assertEquals(LIMIT, countAllowed(new LocalTier(true, 5, 60_000, 1000, 5000)));
+    }
+
+    @Test
+    void deniedKeyIsAnsweredLocallyUntilRetryAfter() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimiter rateLimiter = new RateLimiter(redissonClient,
+                new RateLimitProperties(LIMIT, WINDOW_SECONDS, new LocalTier(true, 5, 60_000, 1000, 5000)), meterRegistry);
+        String key = "rate_limit:test:" + UUID.randomUUID();
+        try {
+            for (int i = 0; i < LIMIT; i++) {
+                assertTrue(rateLimiter.tryAcquire(key, LIMIT, WINDOW_SECONDS).allowed());
+            }
+            RateLimitResult denied = rateLimiter.tryAcquire(key, LIMIT, WINDOW_SECONDS);
+            assertFalse(denied.allowed());
+            assertTrue(denied.retryAfterMillis() > 0);
+            double redisCalls = meterRegistry.counter("auth.rate-limit.decisions", "tier", "redis").count();
+
+            for (int i = 0; i < 100; i++) {
+                RateLimitResult again = rateLimiter.tryAcquire(key, LIMIT, WINDOW_SECONDS);
+                assertFalse(again.allowed());
+                assertTrue(again.retryAfterMillis() > 0 && again.retryAfterMillis() <= denied.retryAfterMillis());
+            }
+            assertEquals(redisCalls, meterRegistry.counter("auth.rate-limit.decisions", "tier", "redis").count());
+        } finally {
+            redissonClient.getKeys().delete(key);
+        }
+    }
+
+    @Test
+    void scheduledFlushReportsLocalAdmissionsToOtherNodes() {
+        LocalTier localTier = new LocalTier(true, 5, 60_000, 1000, 5000);
+        RateLimiter node = new RateLimiter(redissonClient,
+                new RateLimitProperties(LIMIT, WINDOW_SECONDS, localTier), new SimpleMeterRegistry());
+        RateLimiter otherNode = new RateLimiter(redissonClient,
+                new RateLimitProperties(LIMIT, WINDOW_SECONDS, LocalTier.disabled()), new SimpleMeterRegistry());
+        String key = "rate_limit:test:" + UUID.randomUUID();
+        try {
+            // The first request syncs with Redis; the next ones are admitted locally
+            for (int i = 0; i < 5; i++) {
+                assertTrue(node.tryAcquire(key, LIMIT, WINDOW_SECONDS).allowed());
+            }
+            node.flushPending();
+
+            assertEquals(LIMIT - 6, otherNode.tryAcquire(key, LIMIT, WINDOW_SECONDS).remaining());
+        } finally {
+            redissonClient.getKeys().delete(key);
+        }
+    }
+
+    private int countAllowed(LocalTier localTier) throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(redissonClient,
+                new RateLimitProperties(LIMIT, WINDOW_SECONDS, localTier), new SimpleMeterRegistry());
+        String key = "rate_limit:test:" + UUID.randomUUID();
+        int threads = 32;
+        int requestsPerThread = 25;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        if (rateLimiter.tryAcquire(key, LIMIT, WINDOW_SECONDS).allowed()) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            redissonClient.getKeys().delete(key);
+        }
+        return allowed.get();
+    }
+}
@@ -0,0 +1,32 @@
+package com.garbigo.auth.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RouteEncodingTest {
+
+    @Test
+    void encodesReferencePolyline() {
+        // Example from the encoded polyline format specification
+        double[] lat = {38.5, 40.7, 43.252};
+        double[] lon = {-120.2, -120.95, -126.453};
+        StringBuilder out = new StringBuilder();
+        PolylineEncoder.encodePoints(lat, lon, 3, out);
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", out.toString());
+    }
+
+    @Test
+    void dropsCollinearPointsAndKeepsCorners() {
+        // Straight line north, then a right-angle turn east
+        double[] lat = {0, 0.001, 0.002, 0.003, 0.003, 0.003};
+        double[] lon = {0, 0, 0, 0, 0.001, 0.002};
+        boolean[] keep = new boolean[lat.length];
+
+        int kept = DouglasPeucker.simplify(lat, lon, lat.length, 5, keep);
+
+        assertEquals(3, kept);
+        assertArrayEquals(new boolean[]{true, false, false, true, false, true}, keep);
+    }
+}
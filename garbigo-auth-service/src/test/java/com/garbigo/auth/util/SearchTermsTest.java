@@ -0,0 +1,25 @@
+package com.garbigo.auth.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchTermsTest {
+
+    @Test
+    void prefixesCoverEveryLeadingSubstringOnce() {
+        assertEquals(List.of("a", "an", "ann", "ana"), SearchTerms.prefixes(List.of("ann", "ana")));
+    }
+
+    @Test
+    void prefixesStopAtTheIndexedLength() {
+        List<String> prefixes = SearchTerms.prefixes(List.of("wanjiru.kamau@example.com"));
+
+        assertEquals(SearchTerms.MAX_PREFIX_LENGTH, prefixes.size());
+        assertTrue(prefixes.contains("wanjiru.ka"));
+        assertTrue(prefixes.stream().allMatch(p -> p.length() <= SearchTerms.MAX_PREFIX_LENGTH));
+    }
+}
@@ -19,11 +19,35 @@ final dioProvider = Provider<Dio>((ref) {
       }
       handler.next(options);
     },
-    onError: (error, handler) {
-      if (error.response?.statusCode == 401) {
+    onError: (error, handler) async {
+      if (error.response?.statusCode != 401) {
+        return handler.next(error);
+      }
+      final options = error.requestOptions;
+      if (options.extra['retried'] == true) {
         ref.read(authProvider.notifier).logout();
+        return handler.next(error);
+      }
+
+      // The access token expired: rotate the refresh token once and replay the request
+      final auth = ref.read(authProvider.notifier);
+      final bool refreshed;
+      try {
+        refreshed = await auth.refreshSession();
+      } catch (_) {
+        return handler.next(error);
+      }
+      if (!refreshed) {
+        auth.logout();
+        return handler.next(error);
+      }
+
+      options.extra['retried'] = true;
+      try {
+        handler.resolve(await dio.fetch(options));
+      } on DioException catch (e) {
+        handler.next(e);
       }
-      handler.next(error);
     },
   ));
 
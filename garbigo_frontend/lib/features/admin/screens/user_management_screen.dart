@@ -72,8 +72,18 @@ class _UserManagementScreenState extends ConsumerState<UserManagementScreen> {
             else
               Expanded(
                 child: ListView.builder(
-                  itemCount: userState.allUsers.length,
+                  itemCount: userState.allUsers.length + (userState.hasMoreUsers ? 1 : 0),
                   itemBuilder: (context, index) {
+                    if (index == userState.allUsers.length) {
+                      return Padding(
+                        padding: const EdgeInsets.all(16.0),
+                        child: Center(
+                          child: userState.isLoadingMore
+                              ? const CircularProgressIndicator()
+                              : TextButton(onPressed: userNotifier.loadMoreUsers, child: const Text('Load more')),
+                        ),
+                      );
+                    }
                     final user = userState.allUsers[index];
                     return Card(
                       margin: const EdgeInsets.symmetric(horizontal: 16, vertical: 8),
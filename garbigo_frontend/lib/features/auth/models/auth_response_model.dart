@@ -1,10 +1,14 @@
 class AuthResponseModel {
   final String token;
+  final String? refreshToken;
+  final int expiresIn; // seconds until token expires
   final String role;
   final String dashboardUrl;
 
   AuthResponseModel({
     required this.token,
+    this.refreshToken,
+    this.expiresIn = 0,
     required this.role,
     required this.dashboardUrl,
   });
@@ -12,6 +16,8 @@ class AuthResponseModel {
   factory AuthResponseModel.fromJson(Map<String, dynamic> json) {
     return AuthResponseModel(
       token: json['token'] as String,
+      refreshToken: json['refreshToken'] as String?,
+      expiresIn: (json['expiresIn'] as num?)?.toInt() ?? 0,
       role: json['role'] as String,
       dashboardUrl: json['dashboardUrl'] as String,
     );
@@ -20,6 +26,8 @@ class AuthResponseModel {
   Map<String, dynamic> toJson() {
     return {
       'token': token,
+      'refreshToken': refreshToken,
+      'expiresIn': expiresIn,
       'role': role,
       'dashboardUrl': dashboardUrl,
     };
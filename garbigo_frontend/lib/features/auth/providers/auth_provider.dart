@@ -15,20 +15,23 @@ class AuthState {
   final bool isLoading;
   final String? error;
   final String? token;
+  final String? refreshToken;
   final String? role;
 
-  AuthState({this.isLoading = false, this.error, this.token, this.role});
+  AuthState({this.isLoading = false, this.error, this.token, this.refreshToken, this.role});
 
   AuthState copyWith({
     bool? isLoading,
     String? error,
     String? token,
+    String? refreshToken,
     String? role,
   }) {
     return AuthState(
       isLoading: isLoading ?? this.isLoading,
       error: error,
       token: token ?? this.token,
+      refreshToken: refreshToken ?? this.refreshToken,
       role: role ?? this.role,
     );
   }
@@ -41,18 +44,57 @@ class AuthNotifier extends StateNotifier<AuthState> {
 
   final Ref ref;
 
+  // Shared by every request that hits a 401 at the same time, so the refresh token is rotated once;
+  // presenting an already rotated refresh token makes the server revoke the whole session
+  Future<bool>? _refreshing;
+
   Future<void> _loadToken() async {
     final prefs = ref.read(sharedPreferencesProvider);
     final token = prefs.getString('auth_token');
     if (token != null) {
-      state = state.copyWith(token: token);
+      state = state.copyWith(
+        token: token,
+        refreshToken: prefs.getString('refresh_token'),
+        role: prefs.getString('auth_role'),
+      );
       await ref.read(userProvider.notifier).fetchCurrentUser();
     }
   }
 
-  Future<void> _saveToken(String token) async {
+  // Access tokens are short-lived; the refresh token keeps the session going without signing in again
+  Future<void> _saveSession(AuthResponseModel authResponse) async {
     final prefs = ref.read(sharedPreferencesProvider);
-    await prefs.setString('auth_token', token);
+    await prefs.setString('auth_token', authResponse.token);
+    await prefs.setString('auth_role', authResponse.role);
+    if (authResponse.refreshToken != null) {
+      await prefs.setString('refresh_token', authResponse.refreshToken!);
+    }
+    state = state.copyWith(
+      isLoading: false,
+      token: authResponse.token,
+      refreshToken: authResponse.refreshToken,
+      role: authResponse.role,
+    );
+  }
+
+  // Exchanges the refresh token for a new token pair. Returns false when the server rejected it
+  // and the user has to sign in again; network failures are rethrown so the session is kept.
+  Future<bool> refreshSession() {
+    return _refreshing ??= _refresh().whenComplete(() => _refreshing = null);
+  }
+
+  Future<bool> _refresh() async {
+    final refreshToken = state.refreshToken;
+    if (refreshToken == null || refreshToken.isEmpty) return false;
+    try {
+      final dio = Dio(BaseOptions(baseUrl: AppConfig.authBase));
+      final response = await dio.post('/refresh', data: {'refreshToken': refreshToken});
+      await _saveSession(AuthResponseModel.fromJson(response.data));
+      return true;
+    } on DioException catch (e) {
+      if (e.response != null) return false;
+      rethrow;
+    }
   }
 
   Future<void> login(String email, String password) async {
@@ -64,12 +106,7 @@ class AuthNotifier extends StateNotifier<AuthState> {
         'password': password,
       });
       final authResponse = AuthResponseModel.fromJson(response.data);
-      await _saveToken(authResponse.token);
-      state = state.copyWith(
-        isLoading: false,
-        token: authResponse.token,
-        role: authResponse.role,
-      );
+      await _saveSession(authResponse);
       ref.read(userProvider.notifier).fetchCurrentUser();
       Helpers.showToast('Login successful');
     } catch (e) {
@@ -84,12 +121,7 @@ class AuthNotifier extends StateNotifier<AuthState> {
       final dio = Dio(BaseOptions(baseUrl: AppConfig.authBase));
       final response = await dio.post('/signup', data: data);
       final authResponse = AuthResponseModel.fromJson(response.data);
-      await _saveToken(authResponse.token);
-      state = state.copyWith(
-        isLoading: false,
-        token: authResponse.token,
-        role: authResponse.role,
-      );
+      await _saveSession(authResponse);
       ref.read(userProvider.notifier).fetchCurrentUser();
       Helpers.showToast('Signup successful');
     } catch (e) {
@@ -106,12 +138,7 @@ class AuthNotifier extends StateNotifier<AuthState> {
       final dio = Dio(BaseOptions(baseUrl: AppConfig.authBase));
       final response = await dio.post('/social/google', data: {'token': googleAuth?.idToken});
       final authResponse = AuthResponseModel.fromJson(response.data);
-      await _saveToken(authResponse.token);
-      state = state.copyWith(
-        isLoading: false,
-        token: authResponse.token,
-        role: authResponse.role,
-      );
+      await _saveSession(authResponse);
       ref.read(userProvider.notifier).fetchCurrentUser();
     } catch (e) {
       state = state.copyWith(isLoading: false, error: e.toString());
@@ -126,12 +153,7 @@ class AuthNotifier extends StateNotifier<AuthState> {
         final dio = Dio(BaseOptions(baseUrl: AppConfig.authBase));
         final response = await dio.post('/social/facebook', data: {'token': result.accessToken?.tokenString});
         final authResponse = AuthResponseModel.fromJson(response.data);
-        await _saveToken(authResponse.token);
-        state = state.copyWith(
-          isLoading: false,
-          token: authResponse.token,
-          role: authResponse.role,
-        );
+        await _saveSession(authResponse);
         ref.read(userProvider.notifier).fetchCurrentUser();
       }
     } catch (e) {
@@ -146,12 +168,7 @@ class AuthNotifier extends StateNotifier<AuthState> {
       final dio = Dio(BaseOptions(baseUrl: AppConfig.authBase));
       final response = await dio.post('/social/apple', data: {'token': credential.identityToken});
       final authResponse = AuthResponseModel.fromJson(response.data);
-      await _saveToken(authResponse.token);
-      state = state.copyWith(
-        isLoading: false,
-        token: authResponse.token,
-        role: authResponse.role,
-      );
+      await _saveSession(authResponse);
       ref.read(userProvider.notifier).fetchCurrentUser();
     } catch (e) {
       state = state.copyWith(isLoading: false, error: e.toString());
@@ -195,6 +212,16 @@ class AuthNotifier extends StateNotifier<AuthState> {
   }
 
   Future<void> logout() async {
+    final refreshToken = state.refreshToken;
+    if (refreshToken != null && refreshToken.isNotEmpty) {
+      try {
+        final dio = Dio(BaseOptions(baseUrl: AppConfig.authBase));
+        await dio.post('/logout', data: {'refreshToken': refreshToken});
+      } catch (_) {
+        // The session still ends locally; the refresh token expires on the server on its own
+      }
+    }
+
     final prefs = ref.read(sharedPreferencesProvider);
     await prefs.clear();
 
@@ -5,26 +5,45 @@ import 'package:garbigo_frontend/core/network/api_client.dart';
 import 'package:garbigo_frontend/core/utils/helpers.dart';
 import 'package:garbigo_frontend/features/auth/models/user_model.dart';
 
-import 'auth_provider.dart';
-
 class UserState {
   final UserModel? user;
   final List<UserModel> allUsers;
+  // Cursor for the next page of allUsers; null once the last page has been loaded
+  final String? nextCursor;
+  final String search;
   final bool isLoading;
+  final bool isLoadingMore;
   final String? error;
 
-  UserState({this.user, this.allUsers = const [], this.isLoading = false, this.error});
+  UserState({
+    this.user,
+    this.allUsers = const [],
+    this.nextCursor,
+    this.search = '',
+    this.isLoading = false,
+    this.isLoadingMore = false,
+    this.error,
+  });
+
+  bool get hasMoreUsers => nextCursor != null;
 
   UserState copyWith({
     UserModel? user,
     List<UserModel>? allUsers,
+    String? nextCursor,
+    bool clearNextCursor = false,
+    String? search,
     bool? isLoading,
+    bool? isLoadingMore,
     String? error,
   }) {
     return UserState(
       user: user ?? this.user,
       allUsers: allUsers ?? this.allUsers,
+      nextCursor: clearNextCursor ? null : (nextCursor ?? this.nextCursor),
+      search: search ?? this.search,
       isLoading: isLoading ?? this.isLoading,
+      isLoadingMore: isLoadingMore ?? this.isLoadingMore,
       error: error,
     );
   }
@@ -38,9 +57,8 @@ class UserNotifier extends StateNotifier<UserState> {
   Future<void> fetchCurrentUser() async {
     state = state.copyWith(isLoading: true);
     try {
-      final dio = Dio(BaseOptions(baseUrl: AppConfig.usersBase));
-      final token = ref.read(authProvider).token;
-      final response = await dio.get('/profile', options: Options(headers: {'Authorization': 'Bearer $token'}));
+      final dio = ref.read(dioProvider)..options.baseUrl = AppConfig.usersBase;
+      final response = await dio.get('/profile');
       final user = UserModel.fromJson(response.data);
       state = state.copyWith(user: user, isLoading: false);
     } catch (e) {
@@ -48,19 +66,51 @@ class UserNotifier extends StateNotifier<UserState> {
     }
   }
 
+  // Loads the first page of users; loadMoreUsers appends the following pages
   Future<void> getAllUsers({String search = ''}) async {
-    state = state.copyWith(isLoading: true);
+    state = state.copyWith(isLoading: true, search: search, clearNextCursor: true);
     try {
-      final dio = ref.read(dioProvider)..options.baseUrl = AppConfig.usersBase;
-      final response = await dio.get('', queryParameters: search.isNotEmpty ? {'search': search} : null);
-      final List usersJson = response.data;
-      final users = usersJson.map((json) => UserModel.fromJson(json)).toList();
-      state = state.copyWith(allUsers: users, isLoading: false);
+      final page = await _fetchUsersPage(search, null);
+      state = state.copyWith(
+        allUsers: page.users,
+        nextCursor: page.nextCursor,
+        clearNextCursor: page.nextCursor == null,
+        isLoading: false,
+      );
     } catch (e) {
       state = state.copyWith(isLoading: false, error: e.toString());
     }
   }
 
+  Future<void> loadMoreUsers() async {
+    final cursor = state.nextCursor;
+    if (cursor == null || state.isLoading || state.isLoadingMore) return;
+    state = state.copyWith(isLoadingMore: true);
+    try {
+      final page = await _fetchUsersPage(state.search, cursor);
+      state = state.copyWith(
+        allUsers: [...state.allUsers, ...page.users],
+        nextCursor: page.nextCursor,
+        clearNextCursor: page.nextCursor == null,
+        isLoadingMore: false,
+      );
+    } catch (e) {
+      state = state.copyWith(isLoadingMore: false, error: e.toString());
+    }
+  }
+
+  // GET /users returns {users: [...], nextCursor: "..."}; pass the cursor back as 'after' for the next page
+  Future<({List<UserModel> users, String? nextCursor})> _fetchUsersPage(String search, String? after) async {
+    final dio = ref.read(dioProvider)..options.baseUrl = AppConfig.usersBase;
+    final response = await dio.get('', queryParameters: {
+      if (search.isNotEmpty) 'search': search,
+      if (after != null) 'after': after,
+    });
+    final List usersJson = response.data['users'] ?? [];
+    final users = usersJson.map((json) => UserModel.fromJson(json)).toList();
+    return (users: users, nextCursor: response.data['nextCursor'] as String?);
+  }
+
   Future<void> updateProfile(Map<String, dynamic> data, [String? imagePath]) async {
     try {
       final dio = ref.read(dioProvider)..options.baseUrl = AppConfig.usersBase;
@@ -80,7 +130,7 @@ class UserNotifier extends StateNotifier<UserState> {
     try {
       final dio = ref.read(dioProvider)..options.baseUrl = AppConfig.usersBase;
       await dio.put('/$userId/$action');
-      await getAllUsers();
+      await getAllUsers(search: state.search);
       Helpers.showToast('User $action successful');
     } catch (e) {
       Helpers.showToast('Action failed', isError: true);
@@ -91,7 +141,7 @@ class UserNotifier extends StateNotifier<UserState> {
     try {
       final dio = ref.read(dioProvider)..options.baseUrl = AppConfig.usersBase;
       await dio.delete('/$userId');
-      await getAllUsers();
+      await getAllUsers(search: state.search);
       Helpers.showToast('User deleted');
     } catch (e) {
       Helpers.showToast('Delete failed', isError: true);
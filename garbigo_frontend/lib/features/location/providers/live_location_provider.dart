@@ -3,8 +3,8 @@ import 'package:flutter/cupertino.dart';
 import 'package:flutter_riverpod/flutter_riverpod.dart';
 import 'package:geolocator/geolocator.dart';
 import 'package:permission_handler/permission_handler.dart';
-import 'package:dio/dio.dart';
 import 'package:garbigo_frontend/core/config/app_config.dart';
+import 'package:garbigo_frontend/core/network/api_client.dart';
 import 'package:garbigo_frontend/features/auth/providers/auth_provider.dart';
 
 class LiveLocationState {
@@ -76,14 +76,12 @@ class LiveLocationNotifier extends StateNotifier<LiveLocationState> {
   }
 
   Future<void> _sendToBackend(Position position) async {
-    final token = ref.read(authProvider).token;
-    if (token == null) return;
+    if (ref.read(authProvider).token == null) return;
 
     try {
-      final dio = Dio(BaseOptions(baseUrl: AppConfig.usersBase));
+      final dio = ref.read(dioProvider)..options.baseUrl = AppConfig.usersBase;
       await dio.post(
         '/live-location',
-        options: Options(headers: {'Authorization': 'Bearer $token'}),
         data: {
           'latitude': position.latitude,
           'longitude': position.longitude,
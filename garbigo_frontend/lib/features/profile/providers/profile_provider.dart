@@ -3,6 +3,7 @@ import 'package:flutter/foundation.dart' show kIsWeb;
 import 'package:flutter_riverpod/flutter_riverpod.dart';
 import 'package:image_picker/image_picker.dart';
 import 'package:garbigo_frontend/core/config/app_config.dart';
+import 'package:garbigo_frontend/core/network/api_client.dart';
 import 'package:garbigo_frontend/core/utils/helpers.dart';
 import 'package:garbigo_frontend/features/auth/providers/auth_provider.dart';
 import 'package:garbigo_frontend/features/auth/providers/user_provider.dart';
@@ -43,9 +44,8 @@ class ProfileNotifier extends StateNotifier<ProfileState> {
     state = state.copyWith(isLoading: true, error: null, successMessage: null);
 
     try {
-      final dio = Dio(BaseOptions(baseUrl: AppConfig.usersBase));
-      final token = ref.read(authProvider).token;
-      if (token == null) throw 'Not authenticated';
+      if (ref.read(authProvider).token == null) throw 'Not authenticated';
+      final dio = ref.read(dioProvider)..options.baseUrl = AppConfig.usersBase;
 
       FormData formData = FormData.fromMap(data ?? {}); // Use empty map if no text data
 
@@ -79,7 +79,6 @@ class ProfileNotifier extends StateNotifier<ProfileState> {
       await dio.put(
         '/profile',
         data: formData,
-        options: Options(headers: {'Authorization': 'Bearer $token'}),
       );
 
       // Refresh current user